@@ -1,15 +1,21 @@
 package pt.up.fe.comp2025;
 
+import pt.up.fe.comp2025.utils.CompilerLog;
+
 import java.io.File;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Optional;
+import java.nio.file.Path;
+import java.util.*;
 
 public class CompilerConfig {
 
     private static final String INPUT_FILE = "inputFile";
     private static final String OPTIMIZE = "optimize";
     private static final String REGISTER = "registerAllocation";
+    private static final String LOG_LEVEL = "logLevel";
+    private static final String DUMP = "dump";
+    private static final String DUMP_DIR = "dumpDir";
+
+    private static final String DEFAULT_LOG_LEVEL = "error";
 
 
     static Map<String, String> shortToLong = new HashMap<>();
@@ -18,6 +24,9 @@ public class CompilerConfig {
         shortToLong.put("i", CompilerConfig.INPUT_FILE);
         shortToLong.put("o", CompilerConfig.OPTIMIZE);
         shortToLong.put("r", CompilerConfig.REGISTER);
+        shortToLong.put("l", CompilerConfig.LOG_LEVEL);
+        shortToLong.put("d", CompilerConfig.DUMP);
+        shortToLong.put("f", CompilerConfig.DUMP_DIR);
     }
 
 
@@ -40,6 +49,46 @@ public class CompilerConfig {
         return Integer.parseInt(config.getOrDefault(REGISTER, "-1"));
     }
 
+    /**
+     * Messages of the stages up to this level are printed (off, error, info or debug). Only errors are printed by
+     * default, "-l=info" adds the statistics of each stage.
+     */
+    public static CompilerLog.Level getLogLevel(Map<String, String> config) {
+        var level = config.getOrDefault(LOG_LEVEL, DEFAULT_LOG_LEVEL);
+
+        try {
+            return CompilerLog.Level.valueOf(level.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Unrecognized log level '" + level + "', expected one of "
+                    + Arrays.toString(CompilerLog.Level.values()).toLowerCase());
+        }
+    }
+
+    /**
+     * The stages whose code is written to the dump directory, separated by commas (ast, ollir and jasmin).
+     */
+    public static Set<CompilerLog.Dump> getDumps(Map<String, String> config) {
+        var dumps = EnumSet.noneOf(CompilerLog.Dump.class);
+
+        for (var stage : config.getOrDefault(DUMP, "").split(",")) {
+            if (stage.isBlank())
+                continue;
+
+            try {
+                dumps.add(CompilerLog.Dump.valueOf(stage.trim().toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException("Unrecognized dump stage '" + stage + "', expected one of "
+                        + Arrays.toString(CompilerLog.Dump.values()).toLowerCase());
+            }
+        }
+
+        return dumps;
+    }
+
+    public static Path getDumpDir(Map<String, String> config) {
+        return Path.of(config.getOrDefault(DUMP_DIR, "."));
+    }
+
 
     public static Map<String, String> getDefault() {
 
@@ -47,6 +96,7 @@ public class CompilerConfig {
 
         config.put(CompilerConfig.OPTIMIZE, "false");
         config.put(CompilerConfig.REGISTER, "-1");
+        config.put(CompilerConfig.LOG_LEVEL, DEFAULT_LOG_LEVEL);
 
         return config;
     }
@@ -106,6 +156,8 @@ public class CompilerConfig {
         // Verify if values are valid
         getOptimize(config);
         getRegisterAllocation(config);
+        getLogLevel(config);
+        getDumps(config);
 
         return config;
     }
@@ -9,6 +9,7 @@ import pt.up.fe.comp2025.analysis.JmmAnalysisImpl;
 import pt.up.fe.comp2025.backend.JasminBackendImpl;
 import pt.up.fe.comp2025.optimization.JmmOptimizationImpl;
 import pt.up.fe.comp2025.parser.JmmParserImpl;
+import pt.up.fe.comp2025.utils.CompilerLog;
 import pt.up.fe.specs.util.SpecsIo;
 import pt.up.fe.specs.util.SpecsSystem;
 
@@ -58,6 +59,9 @@ public class Launcher {
 
         // Print Jasmin code
         //System.out.println(jasminResult.getJasminCode());
+
+        // Wait for the dumps asked with the option "-d"
+        CompilerLog.flush();
     }
 
 }
@@ -0,0 +1,178 @@
+package pt.up.fe.comp2025.analysis;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2025.utils.ReportUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Applies a sequence of analysis passes to a subtree of the AST, fusing consecutive fusable passes into a single
+ * traversal.
+ * <p>
+ * The visit methods of all fused passes are kept in one dispatch table, indexed by node kind. Each node is
+ * visited once: preorder passes are applied before its children and postorder passes after them, always in the
+ * order the passes were given.
+ * <p>
+ * Each engine keeps the reports of its passes separate, so several engines (e.g., one per method) can run at the
+ * same time. {@link #merge(List)} then combines their reports as if the passes had been applied one after the
+ * other to the whole AST.
+ */
+public class AnalysisEngine {
+
+    private final JmmNode root;
+    private final List<AnalysisVisitor> passes;
+    private final Predicate<JmmNode> excluded;
+
+    private final Map<AnalysisVisitor, Exception> failures;
+    private int traversals;
+
+    public AnalysisEngine(JmmNode root, List<AnalysisVisitor> passes) {
+        this(root, passes, node -> false);
+    }
+
+    /**
+     * @param root     the root of the subtree to analyze
+     * @param passes   the analysis passes, in the order they must be applied
+     * @param excluded subtrees whose root matches this predicate are not visited
+     */
+    public AnalysisEngine(JmmNode root, List<AnalysisVisitor> passes, Predicate<JmmNode> excluded) {
+        this.root = root;
+        this.passes = passes;
+        this.excluded = excluded;
+        this.failures = new HashMap<>();
+        this.traversals = 0;
+    }
+
+    public int getNumPasses() {
+        return passes.size();
+    }
+
+    /**
+     * @return the number of traversals of the subtree done by {@link #run(SymbolTable)}
+     */
+    public int getTraversals() {
+        return traversals;
+    }
+
+    public void run(SymbolTable table) {
+        int first = 0;
+        while (first < passes.size()) {
+            // Group the consecutive passes that can share a traversal
+            int last = first + 1;
+            if (passes.get(first).isFusable()) {
+                while (last < passes.size() && passes.get(last).isFusable())
+                    last++;
+            }
+
+            new FusedTraversal(passes.subList(first, last), table).visit(root);
+            traversals++;
+
+            first = last;
+        }
+    }
+
+    /**
+     * Merges the reports of engines that applied the same passes to different parts of the AST, given in source
+     * order. Reports are added pass by pass, and merging stops at the first pass that reported an error.
+     *
+     * @param engines the engines, after {@link #run(SymbolTable)}
+     * @return the merged reports
+     */
+    public static List<Report> merge(List<AnalysisEngine> engines) {
+        var reports = new ArrayList<Report>();
+
+        if (engines.isEmpty())
+            return reports;
+
+        int numPasses = engines.getFirst().getNumPasses();
+        for (int i = 0; i < numPasses; i++) {
+            var pass = engines.getFirst().passes.get(i);
+
+            Exception exception = null;
+            for (var engine : engines) {
+                exception = engine.failures.get(engine.passes.get(i));
+                if (exception != null)
+                    break;
+            }
+
+            if (exception != null) {
+                reports.add(Report.newError(Stage.SEMANTIC,
+                        -1,
+                        -1,
+                        "Problem while executing analysis pass '" + pass.getClass() + "'",
+                        exception)
+                );
+                continue;
+            }
+
+            var passReports = new ArrayList<Report>();
+            for (var engine : engines)
+                passReports.addAll(engine.passes.get(i).getReports());
+
+            reports.addAll(passReports);
+
+            // Return early in case of error report
+            if (ReportUtils.anyError(passReports))
+                return reports;
+        }
+
+        return reports;
+    }
+
+    /**
+     * Single traversal of the subtree that applies the visit methods of several passes.
+     */
+    private class FusedTraversal {
+
+        private final List<AnalysisVisitor> group;
+        private final SymbolTable table;
+
+        // Node kind -> passes with a visit method for that kind, in pass order
+        private final Map<String, List<AnalysisVisitor>> preorderDispatch;
+        private final Map<String, List<AnalysisVisitor>> postorderDispatch;
+
+        FusedTraversal(List<AnalysisVisitor> group, SymbolTable table) {
+            this.group = group;
+            this.table = table;
+            this.preorderDispatch = new HashMap<>();
+            this.postorderDispatch = new HashMap<>();
+        }
+
+        void visit(JmmNode node) {
+            dispatch(node, preorderDispatch, false);
+
+            for (var child : node.getChildren()) {
+                if (!excluded.test(child))
+                    visit(child);
+            }
+
+            dispatch(node, postorderDispatch, true);
+        }
+
+        private void dispatch(JmmNode node, Map<String, List<AnalysisVisitor>> dispatchTable, boolean postorder) {
+            var nodePasses = dispatchTable.computeIfAbsent(node.getKind(), kind -> group.stream()
+                    .filter(pass -> pass.isPostorder() == postorder)
+                    .filter(pass -> node.getHierarchy().stream().anyMatch(pass.getVisitKinds()::contains))
+                    .toList());
+
+            for (var pass : nodePasses) {
+                // A pass that threw an exception is not applied to the rest of the tree
+                if (failures.containsKey(pass))
+                    continue;
+
+                try {
+                    pass.visitNode(node, table);
+                } catch (Exception e) {
+                    failures.put(pass, e);
+                }
+            }
+        }
+    }
+}
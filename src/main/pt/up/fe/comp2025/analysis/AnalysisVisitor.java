@@ -7,7 +7,11 @@ import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.Stage;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.BiFunction;
 
 /**
  * Implementation of AnalysisPass that automatically visits nodes using preorder traversal.
@@ -16,11 +20,61 @@ public abstract class AnalysisVisitor extends PreorderJmmVisitor<SymbolTable, Vo
 
     private List<Report> reports;
 
+    // Filled by addVisit() while the superclass constructor calls buildVisitor(), so it must not have an initializer
+    private Set<String> visitKinds;
+
     public AnalysisVisitor() {
         reports = new ArrayList<>();
         setDefaultValue(() -> null);
     }
 
+    @Override
+    public void addVisit(String kind, BiFunction<JmmNode, SymbolTable, Void> method) {
+        if (visitKinds == null)
+            visitKinds = new HashSet<>();
+
+        visitKinds.add(kind);
+        super.addVisit(kind, method);
+    }
+
+    /**
+     * @return the node kinds this pass has a visit method for
+     */
+    public Set<String> getVisitKinds() {
+        return visitKinds == null ? Collections.emptySet() : visitKinds;
+    }
+
+    /**
+     * Applies the visit method of this pass to the given node, without visiting its children.
+     *
+     * @param node  the node to visit
+     * @param table the symbol table
+     */
+    public void visitNode(JmmNode node, SymbolTable table) {
+        getVisit(node).apply(node, table);
+    }
+
+    /**
+     * Passes that only look at the visited node and its subtree can share a single traversal of the AST
+     * with other passes (see {@link AnalysisEngine}). Passes that need the whole subtree being analyzed to be
+     * processed by the previous passes before they start must return false.
+     *
+     * @return true if this pass can be fused with the other passes
+     */
+    public boolean isFusable() {
+        return true;
+    }
+
+    /**
+     * When fused, postorder passes are applied to a node after all its children have been visited,
+     * so the attributes computed by the previous passes (e.g., "type") are available on the whole subtree.
+     *
+     * @return true if this pass must visit a node after its children
+     */
+    public boolean isPostorder() {
+        return false;
+    }
+
     protected void addReport(Report report) {
         reports.add(report);
     }
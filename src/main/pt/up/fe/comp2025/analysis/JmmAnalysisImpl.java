@@ -6,14 +6,16 @@ import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp.jmm.report.Report;
-import pt.up.fe.comp.jmm.report.ReportType;
-import pt.up.fe.comp.jmm.report.Stage;
 import pt.up.fe.comp2025.analysis.passes.*;
 import pt.up.fe.comp2025.symboltable.JmmSymbolTableBuilder;
+import pt.up.fe.comp2025.utils.CompilerLog;
+import pt.up.fe.comp2025.utils.ReportUtils;
 
 import java.util.ArrayList;
 import java.util.List;
 
+import static pt.up.fe.comp2025.ast.Kind.METHOD_DECL;
+
 /**
  * Implementation of the semantic analysis stage.
  */
@@ -21,7 +23,8 @@ public class JmmAnalysisImpl implements JmmAnalysis {
 
 
     /**
-     * Analysis passes that will be applied to the AST.
+     * Analysis passes that will be applied to the AST. Returns new instances on each call, since passes keep
+     * state (e.g., the current method and the reports).
      *
      * @param table
      * @return
@@ -48,42 +51,29 @@ public class JmmAnalysisImpl implements JmmAnalysis {
 
         var table = semanticsResult.getSymbolTable();
 
-        var analysisVisitors = buildPasses(table);
-
         var rootNode = semanticsResult.getRootNode();
 
-        var reports = new ArrayList<Report>();
-
-        // This is a simple implementation that assumes all passes are implemented as visitors, each one making a full visit of the AST.
-        // There are other implementations that reduce the number of full AST visits, this is not required for the work, but a nice challenge if you want to try.
-        for (var analysisVisitor : analysisVisitors) {
-            try {
-                var passReports = analysisVisitor.analyze(rootNode, table);
-
-                var hasSymbolTableErrors = passReports.stream()
-                        .anyMatch(report -> report.getType() == ReportType.ERROR);
-
+        var start = System.nanoTime();
 
-                reports.addAll(passReports);
+        // Passes only look at one method at a time, so each method is analyzed by its own passes, in parallel.
+        // The rest of the program (imports, class and fields) is analyzed separately, without the methods.
+        var engines = new ArrayList<AnalysisEngine>();
+        engines.add(new AnalysisEngine(rootNode, buildPasses(table), METHOD_DECL::check));
+        for (var method : rootNode.getDescendants(METHOD_DECL))
+            engines.add(new AnalysisEngine(method, buildPasses(table)));
 
-                // Return early in case of error report
-                if (hasSymbolTableErrors) {
-                    System.out.println("Found errors: " + reports);
-                    return new JmmSemanticsResult(semanticsResult, reports);
-                }
+        engines.parallelStream().forEach(engine -> engine.run(table));
 
-            } catch (Exception e) {
-                reports.add(Report.newError(Stage.SEMANTIC,
-                        -1,
-                        -1,
-                        "Problem while executing analysis pass '" + analysisVisitor.getClass() + "'",
-                        e)
-                );
-                System.out.println("Exception: " + reports);
-            }
+        // Reports are merged in source order
+        var reports = AnalysisEngine.merge(engines);
 
-        }
+        var time = (System.nanoTime() - start) / 1e6;
+        var log = CompilerLog.of(semanticsResult.getConfig());
+        log.info(() -> String.format("Semantic analysis: %d passes, %d method(s) in parallel, %d traversal(s) per method (%.3f ms)",
+                engines.getFirst().getNumPasses(), engines.size() - 1, engines.getFirst().getTraversals(), time));
 
+        if (ReportUtils.anyError(reports))
+            log.error(() -> "Found errors: " + reports);
 
         return new JmmSemanticsResult(semanticsResult, reports);
     }
@@ -8,6 +8,7 @@ import pt.up.fe.comp.jmm.report.Stage;
 import pt.up.fe.comp2025.analysis.AnalysisVisitor;
 import pt.up.fe.comp2025.ast.Kind;
 import pt.up.fe.comp2025.ast.TypeUtils;
+import pt.up.fe.comp2025.symboltable.JmmSymbolTable;
 
 /**
  * Annotates each expression node with its type.
@@ -47,9 +48,9 @@ public class AddType extends AnalysisVisitor {
     private Void visitMethodDecl(JmmNode method, SymbolTable table) {
         currentMethod = method.get("name");
         if (currentMethod.equals("main"))
-            method.put("type", TypeUtils.newVoidType().toString());
+            TypeUtils.setType(method, TypeUtils.newVoidType());
         else
-            method.put("type", table.getReturnType(currentMethod).toString());
+            TypeUtils.setType(method, table.getReturnType(currentMethod));
 
         return null;
     }
@@ -57,28 +58,26 @@ public class AddType extends AnalysisVisitor {
     private Void visitVarDecl(JmmNode varDecl, SymbolTable table) {
         Type varType = types.getExprType(varDecl);
         if (varDecl.getChild(0).getKind().equals("ClassType")) {
-            var varTypeName = TypeUtils.getNameType(varType.toString());
+            var varTypeName = varType.getName();
 
             // Special case for String
             if (varTypeName.equals("String")) {
-                varDecl.put("type", varType.toString());
+                TypeUtils.setType(varDecl, varType);
                 return null;
             }
 
             // Check if the variable is a class
             if (varTypeName.equals(table.getClassName())) {
-                varDecl.put("type", varType.toString());
+                TypeUtils.setType(varDecl, varType);
                 return null;
             }
 
             // Check if the variable is an import
-            for (var importName : table.getImports()) {
-                if (importName.equals(varTypeName) || importName.endsWith("." + varTypeName)) {
-                    varDecl.put("type", varType.toString());
-                    return null;
-                }
+            if (((JmmSymbolTable) table).getImport(varTypeName) != null) {
+                TypeUtils.setType(varDecl, varType);
+                return null;
             }
-            varDecl.put("type", TypeUtils.newType("invalid").toString());
+            TypeUtils.setType(varDecl, TypeUtils.newType("invalid"));
 
             // Create error report
             var message = String.format("Undeclared type '%s', probably missing import", varTypeName);
@@ -90,44 +89,44 @@ public class AddType extends AnalysisVisitor {
                     null)
             );
         } else
-            varDecl.put("type", varType.toString());
+            TypeUtils.setType(varDecl, varType);
 
         return null;
     }
 
     private Void visitBinaryExpr(JmmNode binaryExpr, SymbolTable table) {
         Type type = types.getExprType(binaryExpr);
-        binaryExpr.put("type", type.toString());
+        TypeUtils.setType(binaryExpr, type);
         return null;
     }
 
     private Void visitParenExpr(JmmNode parenExpr, SymbolTable table) {
         var expr = parenExpr.getChild(0);
-        if (!expr.hasAttribute("type"))
+        if (!TypeUtils.hasType(expr))
             visit(expr, table);
-        parenExpr.put("type", expr.get("type"));
+        TypeUtils.setType(parenExpr, TypeUtils.getType(expr));
         return null;
     }
 
     private Void visitIntegerLiteral(JmmNode integerLiteral, SymbolTable table) {
-        integerLiteral.put("type", TypeUtils.newIntType().toString());
+        TypeUtils.setType(integerLiteral, TypeUtils.newIntType());
         return null;
     }
 
     private Void visitBooleanLiteral(JmmNode booleanLiteral, SymbolTable table) {
-        booleanLiteral.put("type", TypeUtils.newBooleanType().toString());
+        TypeUtils.setType(booleanLiteral, TypeUtils.newBooleanType());
         return null;
     }
 
     private Void visitNotExpr(JmmNode notExpr, SymbolTable table) {
         var expr = notExpr.getChild(0);
-        if (!expr.hasAttribute("type"))
+        if (!TypeUtils.hasType(expr))
             visit(expr, table);
         var booleanType = TypeUtils.newBooleanType();
-        if (!expr.get("type").equals(booleanType.toString())) {
+        if (!TypeUtils.getType(expr).equals(booleanType)) {
             // Create error report
             var message = String.format("Type error on children of operator '!', " +
-                    "expected type compatible with '%s' and got '%s'", booleanType, expr.get("type"));
+                    "expected type compatible with '%s' and got '%s'", booleanType, TypeUtils.getType(expr));
             addReport(Report.newError(
                     Stage.SEMANTIC,
                     notExpr.getLine(),
@@ -135,11 +134,11 @@ public class AddType extends AnalysisVisitor {
                     message,
                     null)
             );
-            notExpr.put("type", TypeUtils.newType("invalid").toString());
+            TypeUtils.setType(notExpr, TypeUtils.newType("invalid"));
             return null;
         }
 
-        notExpr.put("type", TypeUtils.newBooleanType().toString());
+        TypeUtils.setType(notExpr, TypeUtils.newBooleanType());
         return null;
     }
 
@@ -147,11 +146,11 @@ public class AddType extends AnalysisVisitor {
         Type varRefExprType = types.getExprType(varRefExpr);
 
         if (varRefExprType != null) {
-            varRefExpr.put("type", varRefExprType.toString());
+            TypeUtils.setType(varRefExpr, varRefExprType);
             return null;
         }
 
-        varRefExpr.put("type", TypeUtils.newType("invalid").toString());
+        TypeUtils.setType(varRefExpr, TypeUtils.newType("invalid"));
 
         // Create error report
         var message = String.format("Variable '%s' not found.", varRefExpr.get("name"));
@@ -169,17 +168,17 @@ public class AddType extends AnalysisVisitor {
     private Void visitArrayAccessExpr(JmmNode arrayAccessExpr, SymbolTable table) {
         var arrayId = arrayAccessExpr.getChild(0);
         visit(arrayId, table);
-        if (arrayId.get("type").equals(TypeUtils.newArrayIntType().toString())) {
-            arrayAccessExpr.put("type", TypeUtils.newIntType().toString());
+        if (TypeUtils.getType(arrayId).equals(TypeUtils.newArrayIntType())) {
+            TypeUtils.setType(arrayAccessExpr, TypeUtils.newIntType());
             return null;
-        } else if (arrayId.get("type").equals(TypeUtils.newArrayType("String").toString())) {
-            arrayAccessExpr.put("type", TypeUtils.newType("String").toString());
+        } else if (TypeUtils.getType(arrayId).equals(TypeUtils.newArrayType("String"))) {
+            TypeUtils.setType(arrayAccessExpr, TypeUtils.newType("String"));
             return null;
         }
 
-        arrayAccessExpr.put("type", TypeUtils.newType("invalid").toString());
+        TypeUtils.setType(arrayAccessExpr, TypeUtils.newType("invalid"));
         // Create error report
-        var message = String.format("Array access done over an int/String array expected, got '%s' instead", arrayId.get("type"));
+        var message = String.format("Array access done over an int/String array expected, got '%s' instead", TypeUtils.getType(arrayId));
         addReport(Report.newError(
                 Stage.SEMANTIC,
                 arrayAccessExpr.getLine(),
@@ -193,7 +192,7 @@ public class AddType extends AnalysisVisitor {
 
     private Void visitArrayExpr(JmmNode arrayExpr, SymbolTable table) {
         // arrays are always of type int[]
-        arrayExpr.put("type", TypeUtils.newArrayIntType().toString());
+        TypeUtils.setType(arrayExpr, TypeUtils.newArrayIntType());
 
         return null;
     }
@@ -203,7 +202,7 @@ public class AddType extends AnalysisVisitor {
 
         Type assigneeType = types.getExprType(assignStmt);
         if (assigneeType == null) {
-            assignStmt.put("type", TypeUtils.newType("invalid").toString());
+            TypeUtils.setType(assignStmt, TypeUtils.newType("invalid"));
 
             // Create error report
             var message = String.format("Variable '%s' does not exist.", assignStmt.get("name"));
@@ -221,15 +220,15 @@ public class AddType extends AnalysisVisitor {
         visit(assigned, table);
 
         // Check if the type of the assignee is compatible with the assigned
-        var assignedTypeName = TypeUtils.getNameType(assigned.get("type"));
+        var assignedTypeName = TypeUtils.getType(assigned).getName();
 
-        if (assigneeType.toString().equals(assigned.get("type"))) {
-            assignStmt.put("type", assigneeType.toString());
+        if (assigneeType.equals(TypeUtils.getType(assigned))) {
+            TypeUtils.setType(assignStmt, assigneeType);
             return null;
         }
 
         if (assigneeType.getName().equals(table.getSuper()) && assignedTypeName.equals(table.getClassName())) {
-            assignStmt.put("type", assigneeType.toString());
+            TypeUtils.setType(assignStmt, assigneeType);
             return null;
         } else if (assigneeType.getName().equals(table.getClassName()) && assignedTypeName.equals(table.getSuper())) {
             //  a = new B() NOT valid!
@@ -247,23 +246,23 @@ public class AddType extends AnalysisVisitor {
                     null)
             );
 
-            assignStmt.put("type", TypeUtils.newType("invalid").toString());
+            TypeUtils.setType(assignStmt, TypeUtils.newType("invalid"));
             return null;
         }
 
         if (assigneeType.getName().equals(table.getClassName()) && table.getImports().contains(assignedTypeName)) {
-            assignStmt.put("type", assigneeType.toString());
+            TypeUtils.setType(assignStmt, assigneeType);
             return null;
         }
 
         if (table.getImports().contains(assigneeType.getName()) && table.getImports().contains(assignedTypeName)) {
-            assignStmt.put("type", assigneeType.toString());
+            TypeUtils.setType(assignStmt, assigneeType);
             return null;
         }
 
         if (table.getImports().contains(assigneeType.getName()) && assignedTypeName.equals(table.getClassName())) {
             if (!assigneeType.getName().equals(table.getSuper())){
-                assignStmt.put("type", TypeUtils.newType("invalid").toString());
+                TypeUtils.setType(assignStmt, TypeUtils.newType("invalid"));
                 // Create error report
                 var message = String.format("Type of the assignee must be compatible with the assigned. " +
                                 "'%s' does not extend '%s'",
@@ -277,28 +276,28 @@ public class AddType extends AnalysisVisitor {
                 );
                 return null;
             }
-            assignStmt.put("type", assigneeType.toString());
+            TypeUtils.setType(assignStmt, assigneeType);
             return null;
         }
 
 
         if (assignedTypeName.equals("invalid")) {
-            assignStmt.put("type", TypeUtils.newType("invalid").toString());
+            TypeUtils.setType(assignStmt, TypeUtils.newType("invalid"));
             return null;
         }
 
         // TODO
         if (assignedTypeName.equals("imported")) {
-            assignStmt.put("type", assigneeType.toString());
+            TypeUtils.setType(assignStmt, assigneeType);
             return null;
         }
 
 
-        assignStmt.put("type", TypeUtils.newType("invalid").toString());
+        TypeUtils.setType(assignStmt, TypeUtils.newType("invalid"));
 
         // Create error report
         var message = String.format("Type of the assignee must be compatible with the assigned. '%s' cannot be converted to '%s'",
-                assigneeType, assigned.get("type"));
+                assigneeType, TypeUtils.getType(assigned));
         addReport(Report.newError(
                 Stage.SEMANTIC,
                 assignStmt.getLine(),
@@ -320,7 +319,7 @@ public class AddType extends AnalysisVisitor {
                     "Assignee must be a variable reference",
                     null)
             );
-            arrayAssignStmt.put("type", TypeUtils.newType("invalid").toString());
+            TypeUtils.setType(arrayAssignStmt, TypeUtils.newType("invalid"));
             return null;
         }
 
@@ -328,7 +327,7 @@ public class AddType extends AnalysisVisitor {
         // variable reference does not exist, but we already reported it
         if (assigneeType == null)
             return null;
-        if (!assigneeType.toString().equals(TypeUtils.newArrayIntType().toString())) {
+        if (!assigneeType.equals(TypeUtils.newArrayIntType())) {
             // Create error report
             var message = String.format("Expected an int array but found '%s' instead.", assigneeType);
             addReport(Report.newError(
@@ -338,34 +337,34 @@ public class AddType extends AnalysisVisitor {
                     message,
                     null)
             );
-            arrayAssignStmt.put("type", TypeUtils.newType("invalid").toString());
+            TypeUtils.setType(arrayAssignStmt, TypeUtils.newType("invalid"));
             return null;
         }
 
-        arrayAssignStmt.put("type", TypeUtils.newIntType().toString());
+        TypeUtils.setType(arrayAssignStmt, TypeUtils.newIntType());
 
         return null;
     }
 
     private Void visitNewIntArrayExpr(JmmNode newIntArrayExpr, SymbolTable table) {
-        newIntArrayExpr.put("type", TypeUtils.newArrayIntType().toString());
+        TypeUtils.setType(newIntArrayExpr, TypeUtils.newArrayIntType());
         return null;
     }
 
     private Void visitNewObjectExpr(JmmNode newObjectExpr, SymbolTable table) {
         var className = newObjectExpr.get("name");
-        newObjectExpr.put("type", TypeUtils.newType(className).toString());
+        TypeUtils.setType(newObjectExpr, TypeUtils.newType(className));
         return null;
     }
 
     private Void visitThisExpr(JmmNode thisExpr, SymbolTable table) {
         var staticMethod = thisExpr.getAncestor(Kind.METHOD_DECL).get().get("isStatic");
         if (!Boolean.parseBoolean(staticMethod)) {
-            thisExpr.put("type", TypeUtils.newType(table.getClassName()).toString());
+            TypeUtils.setType(thisExpr, TypeUtils.newType(table.getClassName()));
             return null;
         }
 
-        thisExpr.put("type", TypeUtils.newType("invalid").toString());
+        TypeUtils.setType(thisExpr, TypeUtils.newType("invalid"));
         // Create error report
         var message = String.format("'This' expression cannot be used in a static method: '%s'", currentMethod);
         addReport(Report.newError(
@@ -383,11 +382,11 @@ public class AddType extends AnalysisVisitor {
         for (var child : methodCallExpr.getChildren())
             visit(child, table);
         var object = methodCallExpr.getChild(0);
-        var objectType = TypeUtils.getNameType(object.get("type"));
+        var objectType = TypeUtils.getType(object).getName();
 
         if (objectType.equals(table.getClassName()) && table.getMethods().contains(methodCallExpr.get("name"))) {
             var returnType = table.getReturnType(methodCallExpr.get("name"));
-            methodCallExpr.put("type", returnType.toString());
+            TypeUtils.setType(methodCallExpr, returnType);
             return null;
         }
 
@@ -395,11 +394,11 @@ public class AddType extends AnalysisVisitor {
                 || table.getImports().contains(objectType)
                 || table.getImports().contains(table.getSuper())
                 || objectType.equals("String")) {
-            methodCallExpr.put("type", TypeUtils.newType("imported").toString());
+            TypeUtils.setType(methodCallExpr, TypeUtils.newType("imported"));
             return null;
         }
 
-        methodCallExpr.put("type", TypeUtils.newType("invalid").toString());
+        TypeUtils.setType(methodCallExpr, TypeUtils.newType("invalid"));
 
         // Create error report
         var message = String.format("Object of type '%s' has no method named '%s'.", objectType, methodCallExpr.get("name"));
@@ -428,15 +427,15 @@ public class AddType extends AnalysisVisitor {
         }
         var expr = returnStmt.getChild(0);
         visit(expr, table);
-        if (expr.hasAttribute("type")) {
-            returnStmt.put("type", expr.get("type"));
+        if (TypeUtils.hasType(expr)) {
+            TypeUtils.setType(returnStmt, TypeUtils.getType(expr));
         }
         return null;
     }
 
     private Void visitLengthExpr(JmmNode lengthExpr, SymbolTable table) {
         if (!lengthExpr.get("name").equals("length")) {
-            lengthExpr.put("type", TypeUtils.newType("invalid").toString());
+            TypeUtils.setType(lengthExpr, TypeUtils.newType("invalid"));
             // Create error report
             addReport(Report.newError(
                     Stage.SEMANTIC,
@@ -447,7 +446,7 @@ public class AddType extends AnalysisVisitor {
             );
             return null;
         }
-        lengthExpr.put("type", TypeUtils.newIntType().toString());
+        TypeUtils.setType(lengthExpr, TypeUtils.newIntType());
 
         return null;
     }
@@ -14,6 +14,12 @@ import pt.up.fe.comp2025.ast.TypeUtils;
  */
 public class Array extends AnalysisVisitor {
 
+    @Override
+    public boolean isPostorder() {
+        // Needs the types of sizes, indexes and elements
+        return true;
+    }
+
     @Override
     public void buildVisitor() {
         addVisit(Kind.ARRAY_ACCESS_EXPR, this::visitArrayAccessExpr);
@@ -24,9 +30,9 @@ public class Array extends AnalysisVisitor {
 
     private Void visitNewIntArrayExpr(JmmNode newIntArrayExpr, SymbolTable table) {
         var size = newIntArrayExpr.getChild(0);
-        if (!size.get("type").equals(TypeUtils.newIntType().toString())) {
+        if (!TypeUtils.getType(size).equals(TypeUtils.newIntType())) {
             // Create error report
-            var message = String.format("Array size must be of type int but found '%s'", size.get("type"));
+            var message = String.format("Array size must be of type int but found '%s'", TypeUtils.getType(size));
             addReport(Report.newError(
                     Stage.SEMANTIC,
                     newIntArrayExpr.getLine(),
@@ -41,12 +47,12 @@ public class Array extends AnalysisVisitor {
 
     private Void visitArrayAccessExpr(JmmNode arrayAccessExpr, SymbolTable table) {
         var arrayIndex = arrayAccessExpr.getChild(1);
-        if (arrayIndex.get("type").equals(TypeUtils.newIntType().toString())) {
+        if (TypeUtils.getType(arrayIndex).equals(TypeUtils.newIntType())) {
             return null;
         }
 
         // Create error report
-        var message = String.format("Array access index must be of type integer but found '%s'", arrayIndex.get("type"));
+        var message = String.format("Array access index must be of type integer but found '%s'", TypeUtils.getType(arrayIndex));
         addReport(Report.newError(
                 Stage.SEMANTIC,
                 arrayAccessExpr.getLine(),
@@ -60,13 +66,13 @@ public class Array extends AnalysisVisitor {
 
     private Void visitArrayExpr(JmmNode arrayExpr, SymbolTable table) {
         if (arrayExpr.getChildren().isEmpty()) return null;
-        var arrayExpType = arrayExpr.get("type");
-        var type = TypeUtils.newType(TypeUtils.getNameType(arrayExpType));
+        var arrayExpType = TypeUtils.getType(arrayExpr);
+        var type = TypeUtils.newType(arrayExpType.getName());
         for (var elem : arrayExpr.getChildren()) {
             visit(elem, table);
-            if (!elem.get("type").equals(type.toString())) {
+            if (!TypeUtils.getType(elem).equals(type)) {
                 // Create error report
-                var message = String.format("Array elements must be of type '%s' but found '%s'", type, elem.get("type"));
+                var message = String.format("Array elements must be of type '%s' but found '%s'", type, TypeUtils.getType(elem));
                 addReport(Report.newError(
                         Stage.SEMANTIC,
                         elem.getLine(),
@@ -81,9 +87,9 @@ public class Array extends AnalysisVisitor {
 
     private Void visitLengthExpr(JmmNode lengthExpr, SymbolTable table) {
         var expr = lengthExpr.getChild(0);
-        if (!expr.get("type").equals(TypeUtils.newArrayIntType().toString())) {
+        if (!TypeUtils.getType(expr).equals(TypeUtils.newArrayIntType())) {
             // Create error report
-            var message = String.format("Expected an array but found '%s' instead.", expr.get("type"));
+            var message = String.format("Expected an array but found '%s' instead.", TypeUtils.getType(expr));
             addReport(Report.newError(
                     Stage.SEMANTIC,
                     lengthExpr.getLine(),
@@ -15,6 +15,12 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class MethodVerification extends AnalysisVisitor {
+    @Override
+    public boolean isPostorder() {
+        // Compares the method type with the type of its return statement
+        return true;
+    }
+
     @Override
     public void buildVisitor() {
         addVisit(Kind.MAIN_METHOD_DECL, this::visitMainMethodDecl);
@@ -87,16 +93,16 @@ public class MethodVerification extends AnalysisVisitor {
             return null;
         }
 
-        var returnStmtType = returnStmt.getFirst().get("type");
+        var returnStmtType = TypeUtils.getType(returnStmt.getFirst());
 
-        if (TypeUtils.getNameType(returnStmtType).equals("imported")) {
+        if (returnStmtType.getName().equals("imported")) {
             return null;
         }
 
-        if (!methodDecl.get("type").equals(returnStmtType)) {
+        if (!TypeUtils.getType(methodDecl).equals(returnStmtType)) {
             // Create error report
             var message = String.format("Return value of type incompatible '%s' with method return type '%s'.",
-                    returnStmtType, methodDecl.get("type"));
+                    returnStmtType, TypeUtils.getType(methodDecl));
             addReport(Report.newError(
                     Stage.SEMANTIC,
                     methodDecl.getLine(),
@@ -135,7 +141,7 @@ public class MethodVerification extends AnalysisVisitor {
     }
 
     private Void visitMethodCallExpr(JmmNode methodCallExpr, SymbolTable table) {
-        if (TypeUtils.getNameType(methodCallExpr.get("type")).equals("imported")) return null;
+        if (TypeUtils.getType(methodCallExpr).getName().equals("imported")) return null;
         if (table.getSuper() == null) {
             String methodName = methodCallExpr.get("name");
             if (table.getMethods().contains(methodName)) {
@@ -199,11 +205,11 @@ public class MethodVerification extends AnalysisVisitor {
 
             JmmNode argNode = argumentNodes.get(i);
             Type paramType = parameters.get(i).getType();
-            if (!argNode.get("type").equals(paramType.toString())) {
+            if (!TypeUtils.getType(argNode).equals(paramType)) {
                 // Create error report
                 var message = String.format("Incompatible argument type. " +
                                 "Method '%s': Parameter '%d' expects '%s' but received '%s'.",
-                        methodName, i, paramType, argNode.get("type"));
+                        methodName, i, paramType, TypeUtils.getType(argNode));
                 addReport(Report.newError(
                         Stage.SEMANTIC,
                         methodCallExpr.getLine(),
@@ -234,15 +240,15 @@ public class MethodVerification extends AnalysisVisitor {
         var isVararg = (boolean) parameters.get(i).getType().getObject("isVarargs");
         if (isVararg) {
             // receive a variable of type int array
-            if (argumentNodes.get(i).get("type").equals(TypeUtils.newArrayIntType().toString())) return;
+            if (TypeUtils.getType(argumentNodes.get(i)).equals(TypeUtils.newArrayIntType())) return;
 
             // receive variable number of (int) arguments
             for (int j = i; j < argumentNodes.size(); j++) {
-                if (!argumentNodes.get(j).get("type").equals(TypeUtils.newIntType().toString())) {
+                if (!TypeUtils.getType(argumentNodes.get(j)).equals(TypeUtils.newIntType())) {
                     // Create error report
                     var message = String.format("Varargs are limited to type 'int'." +
                                     "Method '%s': Parameter '%d' expects 'int' but received '%s'.",
-                            methodName, j, argumentNodes.get(j).get("type"));
+                            methodName, j, TypeUtils.getType(argumentNodes.get(j)));
                     addReport(Report.newError(
                             Stage.SEMANTIC,
                             methodCallExpr.getLine(),
@@ -255,11 +261,11 @@ public class MethodVerification extends AnalysisVisitor {
             }
         } else {
             var lastParamType = parameters.get(i).getType();
-            if (!argumentNodes.get(i).get("type").equals(lastParamType.toString())) {
+            if (!TypeUtils.getType(argumentNodes.get(i)).equals(lastParamType)) {
                 // Create error report
                 var message = String.format("Incompatible argument type. " +
                                 "Method '%s': Parameter '%d' expects '%s' but received '%s'.",
-                        methodName, i, lastParamType, argumentNodes.get(i).get("type"));
+                        methodName, i, lastParamType, TypeUtils.getType(argumentNodes.get(i)));
                 addReport(Report.newError(
                         Stage.SEMANTIC,
                         methodCallExpr.getLine(),
@@ -13,19 +13,25 @@ import pt.up.fe.specs.util.SpecsCheck;
 
 public class OperatorType extends AnalysisVisitor {
 
+    @Override
+    public boolean isPostorder() {
+        // Needs the types of both operands
+        return true;
+    }
+
     @Override
     public void buildVisitor() {
         addVisit(Kind.BINARY_EXPR, this::visitBinaryExpr);
     }
 
     private Void visitBinaryExpr(JmmNode binaryExpr, SymbolTable table) {
-        var type = binaryExpr.get("type");
-        var typeLeftOperand = binaryExpr.getChild(0).get("type");
-        var typeRightOperand = binaryExpr.getChild(1).get("type");
+        var type = TypeUtils.getType(binaryExpr);
+        var typeLeftOperand = TypeUtils.getType(binaryExpr.getChild(0));
+        var typeRightOperand = TypeUtils.getType(binaryExpr.getChild(1));
 
         if (binaryExpr.get("op").equals("<")) {
-            if (typeLeftOperand.equals(TypeUtils.newIntType().toString()) &&
-                    typeRightOperand.equals(TypeUtils.newIntType().toString())) {
+            if (typeLeftOperand.equals(TypeUtils.newIntType()) &&
+                    typeRightOperand.equals(TypeUtils.newIntType())) {
                 return null;
             } else {
                 // Create error report
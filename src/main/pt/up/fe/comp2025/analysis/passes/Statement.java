@@ -11,6 +11,12 @@ import pt.up.fe.specs.util.SpecsCheck;
 
 public class Statement extends AnalysisVisitor {
 
+    @Override
+    public boolean isPostorder() {
+        // Needs the types of conditions and array assignment operands
+        return true;
+    }
+
     @Override
     public void buildVisitor() {
         addVisit(Kind.IF_STMT, this::visitIfStmt);
@@ -20,7 +26,7 @@ public class Statement extends AnalysisVisitor {
 
     private Void visitIfStmt(JmmNode ifStmt, SymbolTable table) {
         var expr = ifStmt.getChild(0);
-        var exprType = TypeUtils.getNameType(expr.get("type"));
+        var exprType = TypeUtils.getType(expr).getName();
         if(exprType.equals("boolean"))
             return null;
 
@@ -39,7 +45,7 @@ public class Statement extends AnalysisVisitor {
 
     private Void visitWhileStmt(JmmNode whileStmt, SymbolTable table) {
         var expr = whileStmt.getChild(0);
-        var exprType = TypeUtils.getNameType(expr.get("type"));
+        var exprType = TypeUtils.getType(expr).getName();
         if(exprType.equals("boolean"))
             return null;
 
@@ -58,8 +64,8 @@ public class Statement extends AnalysisVisitor {
 
     private Void visitArrayAssignStmt(JmmNode arrayAssignStmt, SymbolTable table) {
         // assignee[index] = assigned
-        var indexType = arrayAssignStmt.getChild(1).get("type");
-        if (!indexType.equals(TypeUtils.newIntType().toString())) {
+        var indexType = TypeUtils.getType(arrayAssignStmt.getChild(1));
+        if (!indexType.equals(TypeUtils.newIntType())) {
             // Create error report
             var message = String.format("Index in not an int, instead is an '%s'", indexType);
             addReport(Report.newError(
@@ -72,9 +78,9 @@ public class Statement extends AnalysisVisitor {
             return null;
         }
 
-        var assignedType = arrayAssignStmt.getChild(2).get("type");
-        if (!assignedType.equals(TypeUtils.newIntType().toString())
-                && !TypeUtils.getNameType(assignedType).equals("imported")) {
+        var assignedType = TypeUtils.getType(arrayAssignStmt.getChild(2));
+        if (!assignedType.equals(TypeUtils.newIntType())
+                && !assignedType.getName().equals("imported")) {
             // Create error report
             var message = String.format("Value in not an int, instead is '%s'", assignedType);
             addReport(Report.newError(
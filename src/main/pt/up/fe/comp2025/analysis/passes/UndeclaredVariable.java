@@ -7,6 +7,7 @@ import pt.up.fe.comp.jmm.report.Stage;
 import pt.up.fe.comp2025.analysis.AnalysisVisitor;
 import pt.up.fe.comp2025.ast.Kind;
 import pt.up.fe.comp2025.ast.TypeUtils;
+import pt.up.fe.comp2025.symboltable.JmmSymbolTable;
 import pt.up.fe.specs.util.SpecsCheck;
 
 /**
@@ -35,23 +36,20 @@ public class UndeclaredVariable extends AnalysisVisitor {
 
         // Check if exists a parameter or variable declaration with the same name as the variable reference
         var varRefName = varRefExpr.get("name");
-
+        var symbols = (JmmSymbolTable) table;
 
         // Var is a parameter, return
-        if (table.getParameters(currentMethod).stream()
-                .anyMatch(param -> param.getName().equals(varRefName))) {
+        if (symbols.getParameter(currentMethod, varRefName) != null) {
             return null;
         }
 
         // Var is a declared variable, return
-        if (table.getLocalVariables(currentMethod).stream()
-                .anyMatch(varDecl -> varDecl.getName().equals(varRefName))) {
+        if (symbols.getLocalVariable(currentMethod, varRefName) != null) {
             return null;
         }
 
         // Var is a field, return
-        if (table.getFields().stream()
-                .anyMatch(field -> field.getName().equals(varRefName))) {
+        if (symbols.getField(varRefName) != null) {
             if (currentMethod.equals("main")) {
                 // Create error report
                 var message = String.format("Found field access '%s' inside a static method.", varRefName);
@@ -67,10 +65,8 @@ public class UndeclaredVariable extends AnalysisVisitor {
         }
 
         // Check if the variable is an import, return
-        for (var importName : table.getImports()) {
-            if (importName.equals(varRefName) || importName.endsWith("." + varRefName)) {
-                return null;
-            }
+        if (symbols.getImport(varRefName) != null) {
+            return null;
         }
 
 
@@ -95,15 +91,14 @@ public class UndeclaredVariable extends AnalysisVisitor {
 
         // Check if exists field access inside a static method (main)
         var varName = assignStmt.get("name");
+        var symbols = (JmmSymbolTable) table;
 
         // Var is a declared variable, return
-        if (table.getLocalVariables(currentMethod).stream()
-                .anyMatch(varDecl -> varDecl.getName().equals(varName))) {
+        if (symbols.getLocalVariable(currentMethod, varName) != null) {
             return null;
         }
 
-        if (table.getFields().stream()
-                .anyMatch(field -> field.getName().equals(varName))) {
+        if (symbols.getField(varName) != null) {
                 // Create error report
                 var message = String.format("Found field access '%s' inside a static method.", varName);
                 addReport(Report.newError(
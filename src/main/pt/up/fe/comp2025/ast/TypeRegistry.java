@@ -0,0 +1,84 @@
+package pt.up.fe.comp2025.ast;
+
+import pt.up.fe.comp.jmm.analysis.table.Type;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of canonical {@link Type} instances.
+ * <p>
+ * There is a single instance for each combination of name and array flag, so canonical types can be compared by
+ * identity. Each canonical type caches its OLLIR type (e.g., ".i32", ".array.i32") and its JVM descriptor
+ * (e.g., "I", "[I"). Canonical types are shared and must not be modified.
+ */
+public class TypeRegistry {
+
+    private static final String OLLIR_TYPE = "ollirType";
+    private static final String JVM_DESCRIPTOR = "jvmDescriptor";
+
+    // Type name -> canonical type. Analysis runs methods in parallel, so types can be added concurrently
+    private static final Map<String, Type> TYPES = new ConcurrentHashMap<>();
+    private static final Map<String, Type> ARRAY_TYPES = new ConcurrentHashMap<>();
+
+    public static final Type INT = get("int", false);
+    public static final Type INT_ARRAY = get("int", true);
+    public static final Type BOOLEAN = get("boolean", false);
+    public static final Type VOID = get("void", false);
+    public static final Type STRING = get("String", false);
+    public static final Type STRING_ARRAY = get("String", true);
+
+    private TypeRegistry() {
+    }
+
+    /**
+     * @return the canonical type with the given name and array flag
+     */
+    public static Type get(String name, boolean isArray) {
+        var types = isArray ? ARRAY_TYPES : TYPES;
+
+        var type = types.get(name);
+        if (type != null)
+            return type;
+
+        return types.computeIfAbsent(name, key -> create(key, isArray));
+    }
+
+    /**
+     * @return the canonical instance of a type (e.g., a type from the symbol table)
+     */
+    public static Type canonical(Type type) {
+        return get(type.getName(), type.isArray());
+    }
+
+    public static String getOllirType(Type type) {
+        return (String) canonical(type).getObject(OLLIR_TYPE);
+    }
+
+    public static String getJvmDescriptor(Type type) {
+        return (String) canonical(type).getObject(JVM_DESCRIPTOR);
+    }
+
+    private static Type create(String name, boolean isArray) {
+        var type = new Type(name, isArray);
+
+        // Attributes are set before the type is published in the registry
+        type.putObject(OLLIR_TYPE, (isArray ? ".array" : "") + "." + switch (name) {
+            case "int" -> "i32";
+            case "boolean" -> "bool";
+            case "String" -> "String";
+            case "void" -> "V";
+            default -> name;
+        });
+
+        type.putObject(JVM_DESCRIPTOR, (isArray ? "[" : "") + switch (name) {
+            case "int" -> "I";
+            case "boolean" -> "Z";
+            case "void" -> "V";
+            case "String" -> "Ljava/lang/String;";
+            default -> "L" + name.replace('.', '/') + ";";
+        });
+
+        return type;
+    }
+}
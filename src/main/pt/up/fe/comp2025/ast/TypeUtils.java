@@ -13,6 +13,11 @@ import java.util.regex.*;
 public class TypeUtils {
 
 
+    /**
+     * Attribute of the AST nodes where semantic analysis stores their {@link Type}.
+     */
+    public static final String TYPE_ATTR = "type";
+
     private final JmmSymbolTable table;
 
     private static final String MULT = "*";
@@ -28,27 +33,53 @@ public class TypeUtils {
     }
 
     public static Type newIntType() {
-        return new Type("int", false);
+        return TypeRegistry.INT;
     }
 
     public static Type newArrayIntType() {
-        return new Type("int", true);
+        return TypeRegistry.INT_ARRAY;
     }
 
     public static Type newArrayType(String name) {
-        return new Type(name, true);
+        return TypeRegistry.get(name, true);
     }
 
     public static Type newBooleanType() {
-        return new Type("boolean", false);
+        return TypeRegistry.BOOLEAN;
     }
 
     public static Type newType(String name) {
-        return new Type(name, false);
+        return TypeRegistry.get(name, false);
     }
 
     public static Type newVoidType() {
-        return new Type("void", false);
+        return TypeRegistry.VOID;
+    }
+
+    /**
+     * Sets the type of a node, stored as a {@link Type} object attribute. Nodes always hold canonical types
+     * (see {@link TypeRegistry}).
+     */
+    public static void setType(JmmNode node, Type type) {
+        node.putObject(TYPE_ATTR, TypeRegistry.canonical(type));
+    }
+
+    public static boolean hasType(JmmNode node) {
+        return node.hasAttribute(TYPE_ATTR);
+    }
+
+    /**
+     * @return the type computed for the node during semantic analysis
+     */
+    public static Type getType(JmmNode node) {
+        var type = node.getObject(TYPE_ATTR);
+        if (type instanceof Type typeObject)
+            return typeObject;
+
+        // Copied or deserialized nodes only keep the string representation of the type, convert it once
+        var parsedType = getTypeFromString(type.toString());
+        setType(node, parsedType);
+        return parsedType;
     }
 
     public static String getNameType(String type) {
@@ -72,7 +103,7 @@ public class TypeUtils {
     }
 
     public static Type getTypeFromString(String type) {
-        return new Type(getNameType(type), Boolean.parseBoolean(getIsArrayType(type)));
+        return TypeRegistry.get(getNameType(type), Boolean.parseBoolean(getIsArrayType(type)));
     }
 
     public static Type convertType(JmmNode typeNode) {
@@ -119,35 +150,16 @@ public class TypeUtils {
 
     private Type getVarType(JmmNode node) {
         var varName = node.get("name");
+        var method = node.getAncestor(Kind.METHOD_DECL).map(methodDecl -> methodDecl.get("name")).orElse(null);
 
-        if (node.getAncestor(Kind.METHOD_DECL).isPresent()) {
-            var method = node.getAncestor(Kind.METHOD_DECL).get().get("name");
-
-            // Check if the variable is a local variable
-            for (var localVar : table.getLocalVariables(method)) {
-                if (localVar.getName().equals(varName))
-                    return localVar.getType();
-            }
-
-            // Check if the variable is a parameter
-            for (var param : table.getParameters(method)) {
-                if (param.getName().equals(varName))
-                    return param.getType();
-            }
-        }
-
-        // Check if the variable is a field
-        for (var field : table.getFields()) {
-            if (field.getName().equals(varName))
-                return field.getType();
-        }
+        // Local variables, then parameters, then fields
+        var symbol = table.resolveVariable(method, varName);
+        if (symbol != null)
+            return symbol.getType();
 
         // Check if the variable is an import
-        for (var importName : table.getImports()) {
-            if (importName.equals(varName) || importName.endsWith("." + varName)) {
-                return TypeUtils.newType("imported");
-            }
-        }
+        if (table.getImport(varName) != null)
+            return TypeUtils.newType("imported");
 
         return null;
     }
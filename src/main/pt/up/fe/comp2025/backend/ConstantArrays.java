@@ -0,0 +1,265 @@
+package pt.up.fe.comp2025.backend;
+
+import org.specs.comp.ollir.*;
+import org.specs.comp.ollir.inst.*;
+import org.specs.comp.ollir.type.ArrayType;
+import org.specs.comp.ollir.type.BuiltinKind;
+import org.specs.comp.ollir.type.BuiltinType;
+import pt.up.fe.comp2025.optimization.CallGraph;
+import pt.up.fe.comp2025.optimization.InstructionUtils;
+
+import java.util.*;
+
+/**
+ * Finds the int arrays of a class that are created with constant elements, as array literals are, so the backend
+ * can copy them from a template instead of storing each element.
+ * <p>
+ * Those arrays are "a := new(array, n)" followed by the stores of a literal to the indexes 0 to n-1 of a, in order.
+ * Each distinct list of elements gets a static field with its template, which the class initializer decodes once
+ * from a string constant (two characters per element, with the high and low 16 bits), and each array is a clone of
+ * its template. Arrays with fewer than {@link #MIN_ELEMENTS} elements are cheaper to store element by element.
+ * <p>
+ * When sharing is enabled, an array that is only passed to a method of the class that never changes it or lets it
+ * escape (e.g., the array of a call with constant varargs) is the template itself, whatever its length, so the call
+ * creates no array at all.
+ */
+public class ConstantArrays {
+
+    /**
+     * @param shared if true, the array is the template itself, instead of a clone of it
+     */
+    public record Array(String field, int length, boolean shared) {
+    }
+
+    private static final int MIN_ELEMENTS = 8;
+
+    // A string constant has at most 65535 bytes, and each element takes at most 6 of them
+    private static final int MAX_ELEMENTS = 65535 / 6;
+
+    private static final String FIELD_PREFIX = "constArray";
+    private static final String DECODER_NAME = "decodeInts";
+
+    private final ClassUnit classUnit;
+    private final CallGraph callGraph;
+
+    // The array created by each "new" instruction, and the elements of each field
+    private final Map<Instruction, Array> arrays;
+    private final Map<String, int[]> fieldValues;
+
+    /**
+     * @param share if true, arrays only read by the methods they are passed to share their template
+     */
+    public ConstantArrays(ClassUnit classUnit, boolean share) {
+        this.classUnit = classUnit;
+        this.callGraph = new CallGraph(classUnit);
+        this.arrays = new IdentityHashMap<>();
+        this.fieldValues = new LinkedHashMap<>();
+
+        var fieldsByValues = new HashMap<List<Integer>, String>();
+        for (var method : classUnit.getMethods()) {
+            var instructions = method.getInstructions();
+
+            for (int i = 0; i < instructions.size(); i++) {
+                var values = getConstantElements(method, i);
+                if (values == null)
+                    continue;
+
+                boolean shared = share && isOnlyRead(method, i, values.size());
+                if (!shared && values.size() < MIN_ELEMENTS)
+                    continue;
+
+                var field = fieldsByValues.computeIfAbsent(values, key -> newFieldName());
+                fieldValues.putIfAbsent(field, values.stream().mapToInt(Integer::intValue).toArray());
+                arrays.put(instructions.get(i), new Array(field, values.size(), shared));
+            }
+        }
+    }
+
+    /**
+     * @return the array created by the instruction, which is followed by the stores of its elements, or null
+     */
+    public Array get(Instruction inst) {
+        return arrays.get(inst);
+    }
+
+    /**
+     * @return the elements of the template in each field
+     */
+    public Map<String, int[]> getTemplates() {
+        return fieldValues;
+    }
+
+    public boolean isEmpty() {
+        return fieldValues.isEmpty();
+    }
+
+    /**
+     * @return the name of the static method that decodes the templates
+     */
+    public String getDecoderName() {
+        var name = DECODER_NAME;
+        for (int number = 1; isUsed(name); number++)
+            name = DECODER_NAME + number;
+
+        return name;
+    }
+
+    /**
+     * @return the elements encoded as the contents of a Jasmin string constant
+     */
+    public static String encode(int[] values) {
+        var code = new StringBuilder();
+        for (int value : values) {
+            appendChar(code, (char) (value >>> 16));
+            appendChar(code, (char) value);
+        }
+
+        return code.toString();
+    }
+
+    private static void appendChar(StringBuilder code, char c) {
+        if (c == '"' || c == '\\')
+            code.append('\\').append(c);
+        else if (c >= ' ' && c <= '~')
+            code.append(c);
+        else
+            code.append(String.format("\\u%04x", (int) c));
+    }
+
+    /**
+     * @return the elements stored in the array created by the i-th instruction, or null if they are not constant
+     */
+    private static List<Integer> getConstantElements(Method method, int i) {
+        var instructions = method.getInstructions();
+        if (!(instructions.get(i) instanceof AssignInstruction assign)
+                || !(assign.getDest() instanceof Operand array)
+                || !(assign.getRhs() instanceof NewInstruction newArray)
+                || !(newArray.getCaller().getType() instanceof ArrayType arrayType)
+                || !(arrayType.getElementType() instanceof BuiltinType elementType)
+                || elementType.getKind() != BuiltinKind.INT32
+                || !(newArray.getArguments().getFirst() instanceof LiteralElement size))
+            return null;
+
+        int length = Integer.parseInt(size.getLiteral());
+        if (length > MAX_ELEMENTS || i + length >= instructions.size())
+            return null;
+
+        var values = new ArrayList<Integer>();
+        for (int index = 0; index < length; index++) {
+            var inst = instructions.get(i + 1 + index);
+
+            // A label would let other code jump into the middle of the stores
+            if (!method.getLabels(inst).isEmpty())
+                return null;
+
+            if (!(inst instanceof AssignInstruction store)
+                    || !(store.getDest() instanceof ArrayOperand element)
+                    || !element.getName().equals(array.getName())
+                    || !(element.getIndexOperands().getFirst() instanceof LiteralElement elementIndex)
+                    || Integer.parseInt(elementIndex.getLiteral()) != index
+                    || !(store.getRhs() instanceof SingleOpInstruction single)
+                    || !(single.getSingleOperand() instanceof LiteralElement value))
+                return null;
+
+            values.add(Integer.parseInt(value.getLiteral()));
+        }
+
+        return values;
+    }
+
+    /**
+     * @return true if the array created by the i-th instruction, after the stores of its elements, is only passed to
+     * a method of the class that never changes it or lets it escape
+     */
+    private boolean isOnlyRead(Method method, int i, int length) {
+        var name = ((Operand) ((AssignInstruction) method.getInstructions().get(i)).getDest()).getName();
+
+        CallInstruction passedTo = null;
+        int argIndex = -1;
+        for (var inst : method.getInstructions()) {
+            var def = InstructionUtils.getDef(inst);
+            if (def != null && def.getName().equals(name) && inst != method.getInstructions().get(i))
+                return false;
+
+            var call = getCall(inst);
+            for (var use : InstructionUtils.getUses(inst)) {
+                if (!use.getName().equals(name) || use instanceof ArrayOperand)
+                    continue;
+
+                // Besides the stores of its elements, the array can only be an argument of a single call
+                argIndex = call != null ? indexOf(call.getArguments(), use) : -1;
+                if (passedTo != null || argIndex < 0)
+                    return false;
+                passedTo = call;
+            }
+        }
+
+        // The stores of the elements are the only uses of the array as an array operand
+        long numStores = method.getInstructions().stream()
+                .flatMap(inst -> InstructionUtils.getUses(inst).stream())
+                .filter(use -> use instanceof ArrayOperand && use.getName().equals(name))
+                .count();
+        if (passedTo == null || numStores != length)
+            return false;
+
+        var callee = callGraph.getCalledMethod(passedTo);
+        return callee != null && callee.getParams().get(argIndex) instanceof Operand param
+                && isReadOnlyParam(callee, param.getName());
+    }
+
+    /**
+     * @return true if the parameter is only used to read its elements or length
+     */
+    private static boolean isReadOnlyParam(Method method, String param) {
+        for (var inst : method.getInstructions()) {
+            var def = InstructionUtils.getDef(inst);
+            if (def != null && def.getName().equals(param))
+                return false;
+
+            var rhs = inst instanceof AssignInstruction assign ? assign.getRhs() : inst;
+            for (var use : InstructionUtils.getUses(inst)) {
+                if (!use.getName().equals(param))
+                    continue;
+
+                boolean isElementRead = use instanceof ArrayOperand
+                        && !(inst instanceof AssignInstruction assign && assign.getDest() == use);
+                boolean isLength = rhs instanceof ArrayLengthInstruction length && length.getCaller() == use;
+                if (!isElementRead && !isLength)
+                    return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static CallInstruction getCall(Instruction inst) {
+        if (inst instanceof AssignInstruction assign)
+            inst = assign.getRhs();
+
+        return inst instanceof CallInstruction call ? call : null;
+    }
+
+    private static int indexOf(List<Element> args, Operand arg) {
+        for (int i = 0; i < args.size(); i++)
+            if (args.get(i) == arg)
+                return i;
+
+        return -1;
+    }
+
+    private String newFieldName() {
+        String name;
+        int number = fieldValues.size();
+        do {
+            name = FIELD_PREFIX + number++;
+        } while (isUsed(name));
+
+        return name;
+    }
+
+    private boolean isUsed(String name) {
+        return fieldValues.containsKey(name)
+                || classUnit.getFields().stream().anyMatch(field -> field.getFieldName().equals(name))
+                || classUnit.getMethods().stream().anyMatch(method -> method.getMethodName().equals(name));
+    }
+}
@@ -0,0 +1,79 @@
+package pt.up.fe.comp2025.backend;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes Jasmin code to an {@link Appendable} (e.g., a StringBuilder or a buffered file writer), one line at a time.
+ * <p>
+ * Each line starts with the indentation of the emitter, so the generator writes the instructions of a method
+ * directly to the sink, instead of building a string per instruction and indenting its lines afterward.
+ */
+public class JasminEmitter {
+
+    private static final String NL = "\n";
+    private static final String TAB = "   ";
+
+    private final Appendable out;
+    private int indentation;
+
+    public JasminEmitter(Appendable out) {
+        this.out = out;
+        this.indentation = 0;
+    }
+
+    public JasminEmitter indent() {
+        indentation++;
+        return this;
+    }
+
+    public JasminEmitter dedent() {
+        indentation--;
+        return this;
+    }
+
+    /**
+     * Starts a new line, with the current indentation.
+     */
+    public JasminEmitter line() {
+        for (int i = 0; i < indentation; i++)
+            append(TAB);
+
+        return this;
+    }
+
+    /**
+     * Writes a whole line, with the current indentation.
+     */
+    public JasminEmitter line(CharSequence text) {
+        return line().append(text).end();
+    }
+
+    /**
+     * Writes a label, which is never indented.
+     */
+    public JasminEmitter label(String label) {
+        return append(label).append(":").end();
+    }
+
+    /**
+     * Ends the current line.
+     */
+    public JasminEmitter end() {
+        return append(NL);
+    }
+
+    public JasminEmitter append(int value) {
+        return append(Integer.toString(value));
+    }
+
+    public JasminEmitter append(CharSequence text) {
+        try {
+            out.append(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return this;
+    }
+}
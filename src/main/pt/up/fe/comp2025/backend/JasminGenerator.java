@@ -6,10 +6,10 @@ import org.specs.comp.ollir.type.*;
 import org.specs.comp.ollir.tree.TreeNode;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
 import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2025.CompilerConfig;
 import pt.up.fe.specs.util.SpecsCheck;
-import pt.up.fe.specs.util.classmap.FunctionClassMap;
+import pt.up.fe.specs.util.classmap.BiConsumerClassMap;
 import pt.up.fe.specs.util.exceptions.NotImplementedException;
-import pt.up.fe.specs.util.utilities.StringLines;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -21,12 +21,12 @@ import java.util.stream.Collectors;
  * Generates Jasmin code from an OllirResult.
  * <p>
  * One JasminGenerator instance per OllirResult.
+ * <p>
+ * The code is written to a {@link JasminEmitter} as it is generated. Only the body of the method being generated is
+ * kept in a buffer, reused by every method, since the limits of the method must be written before it.
  */
 public class JasminGenerator {
 
-    private static final String NL = "\n";
-    private static final String TAB = "   ";
-
     private final OllirResult ollirResult;
 
     List<Report> reports;
@@ -36,10 +36,13 @@ public class JasminGenerator {
     Method currentMethod;
     Limits limits;
     private final Map<String, String> importedClassPaths;
+    private ConstantArrays constantArrays;
 
     private final JasminUtils types;
 
-    private final FunctionClassMap<TreeNode, String> generators;
+    private final StringBuilder bodyBuffer;
+
+    private final BiConsumerClassMap<TreeNode, JasminEmitter> generators;
 
     public JasminGenerator(OllirResult ollirResult) {
         this.ollirResult = ollirResult;
@@ -48,6 +51,7 @@ public class JasminGenerator {
         code = null;
         currentMethod = null;
         limits = null;
+        bodyBuffer = new StringBuilder();
 
         types = new JasminUtils(ollirResult);
 
@@ -58,7 +62,7 @@ public class JasminGenerator {
             importedClassPaths.put(lastPart, importPath.replace('.', '/'));
         }
 
-        this.generators = new FunctionClassMap<>();
+        this.generators = new BiConsumerClassMap<>();
         generators.put(ClassUnit.class, this::generateClassUnit);
         generators.put(Field.class, this::generateField);
         generators.put(Method.class, this::generateMethod);
@@ -81,25 +85,22 @@ public class JasminGenerator {
         generators.put(ArrayLengthInstruction.class, this::generateArrayLength);
     }
 
-    private String generateArrayLength(ArrayLengthInstruction arrayLength) {
-        String code = apply(arrayLength.getCaller()) + "arraylength" + NL;
+    private void generateArrayLength(ArrayLengthInstruction arrayLength, JasminEmitter out) {
+        apply(arrayLength.getCaller(), out);
+        out.line("arraylength");
 
         limits.decrement();
         limits.increment();
-
-        return code;
     }
 
-    private String generateInvokeVirtual(InvokeVirtualInstruction invokeVirtual) {
-        var code = new StringBuilder();
-
+    private void generateInvokeVirtual(InvokeVirtualInstruction invokeVirtual, JasminEmitter out) {
         Operand caller = (Operand) invokeVirtual.getCaller();
         if (this.currentMethod.getVarTable().get(caller.getName()) != null) {
-            code.append(apply(caller));
+            apply(caller, out);
         }
 
         for (var arg : invokeVirtual.getArguments()) {
-            code.append(apply(arg));
+            apply(arg, out);
         }
 
         var className = ((ClassType) invokeVirtual.getCaller().getType()).getName();
@@ -110,60 +111,79 @@ public class JasminGenerator {
                 .collect(Collectors.joining());
         var returnType = types.getDescriptor(invokeVirtual.getReturnType());
 
-        code.append("invokevirtual ")
+        out.line().append("invokevirtual ")
                 .append(fullClassName).append("/")
                 .append(methodName).append("(")
                 .append(params).append(")")
-                .append(returnType).append(NL);
+                .append(returnType).end();
 
         limits.decrement(invokeVirtual.getArguments().size() + 1);
         var isVoid = BuiltinType.is(invokeVirtual.getReturnType(), BuiltinKind.VOID);
         if (!isVoid)
             limits.increment();
-
-        return code.toString();
     }
 
-    private String generateUnaryOp(UnaryOpInstruction unaryOp) {
-        var code = new StringBuilder();
-
-        code.append(apply(unaryOp.getOperand()));
+    private void generateUnaryOp(UnaryOpInstruction unaryOp, JasminEmitter out) {
+        apply(unaryOp.getOperand(), out);
 
         if (unaryOp.getOperation().getOpType() == OperationType.NOTB) {
             // NOTB is equivalent to XOR with 1
-            code.append("iconst_1").append(NL);
+            out.line("iconst_1");
             limits.increment();
-            code.append("ixor").append(NL);
+            out.line("ixor");
             limits.decrement(2);
             limits.increment();
         } else {
             throw new NotImplementedException(unaryOp.getOperation().getOpType());
         }
-
-        return code.toString();
     }
 
 
-    private String generateOpCond(OpCondInstruction opCondInstruction) {
-        var code = new StringBuilder();
+    private void generateOpCond(OpCondInstruction opCondInstruction, JasminEmitter out) {
+        var condition = opCondInstruction.getCondition();
+        var label = opCondInstruction.getLabel();
 
-        code.append(apply(opCondInstruction.getCondition()));
-        code.append("ifne ").append(opCondInstruction.getLabel()).append(NL);
+        // Comparisons and negations jump directly, without computing their boolean value
+        if (condition instanceof BinaryOpInstruction binaryOp) {
+            var opType = binaryOp.getOperation().getOpType();
+            if (opType == OperationType.LTH || opType == OperationType.GTE) {
+                apply(binaryOp.getLeftOperand(), out);
 
-        limits.decrement(); // TODO: Check if this is correct
+                if (binaryOp.getRightOperand() instanceof LiteralElement rightLiteral &&
+                        Integer.parseInt(rightLiteral.getLiteral()) == 0) {
+                    out.line().append(opType == OperationType.LTH ? "iflt " : "ifge ").append(label).end();
+                    limits.decrement();
+                } else {
+                    apply(binaryOp.getRightOperand(), out);
+                    out.line().append(opType == OperationType.LTH ? "if_icmplt " : "if_icmpge ").append(label).end();
+                    limits.decrement(2);
+                }
 
-        return code.toString();
-    }
+                return;
+            }
+        }
 
-    private String generateGoto(GotoInstruction gotoInstruction) {
-        return "goto " + gotoInstruction.getLabel() + NL;
+        if (condition instanceof UnaryOpInstruction unaryOp && unaryOp.getOperation().getOpType() == OperationType.NOTB) {
+            apply(unaryOp.getOperand(), out);
+            out.line().append("ifeq ").append(label).end();
+            limits.decrement();
+
+            return;
+        }
+
+        apply(condition, out);
+        out.line().append("ifne ").append(opCondInstruction.getLabel()).end();
+
+        limits.decrement(); // TODO: Check if this is correct
     }
 
-    private String generateInvokeStatic(InvokeStaticInstruction invokeStatic) {
-        var code = new StringBuilder();
+    private void generateGoto(GotoInstruction gotoInstruction, JasminEmitter out) {
+        out.line().append("goto ").append(gotoInstruction.getLabel()).end();
+    }
 
+    private void generateInvokeStatic(InvokeStaticInstruction invokeStatic, JasminEmitter out) {
         for (var arg : invokeStatic.getArguments()) {
-            code.append(apply(arg));
+            apply(arg, out);
         }
 
         var className = ((Operand) invokeStatic.getCaller()).getName();
@@ -174,86 +194,62 @@ public class JasminGenerator {
                 .collect(Collectors.joining());
         var returnType = types.getDescriptor(invokeStatic.getReturnType());
 
-        code.append("invokestatic ")
+        out.line().append("invokestatic ")
                 .append(fullClassName).append("/")
                 .append(methodName).append("(")
                 .append(params).append(")")
-                .append(returnType).append(NL);
+                .append(returnType).end();
 
         limits.decrement(invokeStatic.getArguments().size());
         var isVoid = BuiltinType.is(invokeStatic.getReturnType(), BuiltinKind.VOID);
         if (!isVoid)
             limits.increment();
-
-        return code.toString();
     }
 
-    private String generateSingleOpCond(SingleOpCondInstruction singleOpCond) {
-        var code = new StringBuilder();
-
-        code.append(apply(singleOpCond.getOperands().getFirst()));
-        code.append("ifne ").append(singleOpCond.getLabel()).append(NL);
+    private void generateSingleOpCond(SingleOpCondInstruction singleOpCond, JasminEmitter out) {
+        apply(singleOpCond.getOperands().getFirst(), out);
+        out.line().append("ifne ").append(singleOpCond.getLabel()).end();
 
         limits.decrement(); // TODO: Check if this is correct
-
-        return code.toString();
     }
 
-    private String generatePutField(PutFieldInstruction putFieldInstruction) {
-        var code = new StringBuilder();
-
-        code.append("aload_0").append(NL);
-        limits.increment();
-
-        code.append(apply(putFieldInstruction.getOperands().get(2)));
+    private void generatePutField(PutFieldInstruction putFieldInstruction, JasminEmitter out) {
+        apply(putFieldInstruction.getObject(), out);
+        apply(putFieldInstruction.getOperands().get(2), out);
 
         var className = currentMethod.getOllirClass().getClassName();
         var fieldName = putFieldInstruction.getField().getName();
 
-        code.append("putfield ").append(className).append("/").append(fieldName)
-                .append(" ").append(types.getDescriptor(putFieldInstruction.getField().getType())).append(NL);
+        out.line().append("putfield ").append(className).append("/").append(fieldName)
+                .append(" ").append(types.getDescriptor(putFieldInstruction.getField().getType())).end();
 
         limits.decrement(2);
-
-        return code.toString();
     }
 
-    private String generateGetField(GetFieldInstruction getFieldInstruction) {
-        var code = new StringBuilder();
-
+    private void generateGetField(GetFieldInstruction getFieldInstruction, JasminEmitter out) {
         var className = currentMethod.getOllirClass().getClassName();
         var fieldName = getFieldInstruction.getField().getName();
 
-        code.append("aload_0").append(NL);
-        code.append("getfield ").append(className).append("/").append(fieldName)
-                .append(" ").append(types.getDescriptor(getFieldInstruction.getField().getType())).append(NL);
-
-        limits.increment();
-
-        return code.toString();
+        apply(getFieldInstruction.getObject(), out);
+        out.line().append("getfield ").append(className).append("/").append(fieldName)
+                .append(" ").append(types.getDescriptor(getFieldInstruction.getField().getType())).end();
     }
 
-    private String generateInvokeSpecial(InvokeSpecialInstruction invokeSpecial) {
-        var code = new StringBuilder();
-
+    private void generateInvokeSpecial(InvokeSpecialInstruction invokeSpecial, JasminEmitter out) {
         Operand caller = (Operand) invokeSpecial.getCaller();
         if (this.currentMethod.getVarTable().get(caller.getName()) != null) {
-            code.append(generators.apply(caller));
+            generators.accept(caller, out);
         }
 
         var className = ((ClassType) invokeSpecial.getCaller().getType()).getName();
         var fullClassName = importedClassPaths.getOrDefault(className, className);
-        code.append("invokespecial ").append(fullClassName).append("/<init>()V").append(NL);
+        out.line().append("invokespecial ").append(fullClassName).append("/<init>()V").end();
 
         limits.decrement();
-
-        return code.toString();
     }
 
-    private String generateField(Field field) {
-        var code = new StringBuilder();
-
-        code.append(".field ");
+    private void generateField(Field field, JasminEmitter out) {
+        out.line().append(".field ");
 
         var accessModifier = "";
         switch (field.getFieldAccessModifier()) {
@@ -263,36 +259,33 @@ public class JasminGenerator {
             case DEFAULT -> accessModifier = "";
         }
 
-        code.append(accessModifier).append("'").append(field.getFieldName()).append("'").append(" ").
-                append(types.getDescriptor(field.getFieldType())).append(NL);
-
-        return code.toString();
+        out.append(accessModifier).append("'").append(field.getFieldName()).append("'").append(" ").
+                append(types.getDescriptor(field.getFieldType())).end();
     }
 
-    private String generateNew(NewInstruction newInstruction) {
+    private void generateNew(NewInstruction newInstruction, JasminEmitter out) {
         var callerType = newInstruction.getCaller().getType();
 
-        var code = new StringBuilder();
         if (callerType instanceof ArrayType arrayType) {
 
             SpecsCheck.checkArgument(newInstruction.getArguments().size() == 1,
                     () -> "Expected number of arguments to be 1: " + newInstruction.getArguments().size());
-            code.append(apply(newInstruction.getArguments().getFirst()));
+            apply(newInstruction.getArguments().getFirst(), out);
 
             var typeCode = types.getArrayType(arrayType.getElementType());
-            code.append("newarray ").append(typeCode).append(NL);
+            out.line().append("newarray ").append(typeCode).end();
             limits.decrement();
             limits.increment();
 
-            return code.toString();
+            return;
         } else if (callerType instanceof ClassType classType) {
             var className = classType.getName();
             var fullClassName = importedClassPaths.getOrDefault(className, className);
 
-            code.append("new ").append(fullClassName).append(NL);
+            out.line().append("new ").append(fullClassName).end();
             limits.increment();
 
-            return code.toString();
+            return;
 
         }
 
@@ -300,15 +293,11 @@ public class JasminGenerator {
         throw new NotImplementedException(callerType);
     }
 
-    private String apply(TreeNode node) {
-        var code = new StringBuilder();
-
+    private void apply(TreeNode node, JasminEmitter out) {
         // Print the corresponding OLLIR code as a comment
-        //code.append("; ").append(node).append(NL);
+        //out.line().append("; ").append(node.toString()).end();
 
-        code.append(generators.apply(node));
-
-        return code.toString();
+        generators.accept(node, out);
     }
 
 
@@ -320,20 +309,27 @@ public class JasminGenerator {
 
         // This way, build is idempotent
         if (code == null) {
-            code = apply(ollirResult.getOllirClass());
+            var builder = new StringBuilder();
+            write(builder);
+            code = builder.toString();
         }
 
         return code;
     }
 
+    /**
+     * Writes the Jasmin code of the class directly to the given sink, without keeping it in memory.
+     */
+    public void write(Appendable sink) {
+        apply(ollirResult.getOllirClass(), new JasminEmitter(sink));
+    }
 
-    private String generateClassUnit(ClassUnit classUnit) {
 
-        var code = new StringBuilder();
+    private void generateClassUnit(ClassUnit classUnit, JasminEmitter out) {
 
         // generate class name
         var className = ollirResult.getOllirClass().getClassName();
-        code.append(".class ").append(className).append(NL).append(NL);
+        out.line().append(".class ").append(className).end().end();
 
         var fullSuperClass = "";
         if (classUnit.getSuperClass() != null) {
@@ -347,10 +343,15 @@ public class JasminGenerator {
             fullSuperClass = "java/lang/Object";
         }
 
-        code.append(".super ").append(fullSuperClass).append(NL);
+        out.line().append(".super ").append(fullSuperClass).end();
 
         for (var field : ollirResult.getOllirClass().getFields()) {
-            code.append(apply(field));
+            apply(field, out);
+        }
+
+        constantArrays = new ConstantArrays(classUnit, CompilerConfig.getOptimize(ollirResult.getConfig()));
+        for (var field : constantArrays.getTemplates().keySet()) {
+            out.line().append(".field private static '").append(field).append("' [I").end();
         }
 
         // generate a single constructor method
@@ -362,7 +363,7 @@ public class JasminGenerator {
                     return
                 .end method
                 """.formatted(fullSuperClass);
-        code.append(defaultConstructor);
+        out.append(defaultConstructor);
 
         // generate code for all other methods
         for (var method : ollirResult.getOllirClass().getMethods()) {
@@ -374,19 +375,131 @@ public class JasminGenerator {
                 continue;
             }
 
-            code.append(apply(method));
+            apply(method, out);
+        }
+
+        if (!constantArrays.isEmpty()) {
+            generateConstantArrayTemplates(className, out);
+        }
+    }
+
+    /**
+     * Generates the class initializer, which decodes the templates of the constant arrays from string constants, and
+     * the method that decodes them.
+     */
+    private void generateConstantArrayTemplates(String className, JasminEmitter out) {
+        var decoder = constantArrays.getDecoderName();
+
+        out.end().line(".method static <clinit>()V").indent();
+        out.line(".limit stack 1");
+        out.line(".limit locals 0");
+        for (var template : constantArrays.getTemplates().entrySet()) {
+            out.line().append("ldc \"").append(ConstantArrays.encode(template.getValue())).append("\"").end();
+            out.line().append("invokestatic ").append(className).append("/").append(decoder)
+                    .append("(Ljava/lang/String;)[I").end();
+            out.line().append("putstatic ").append(className).append("/").append(template.getKey()).append(" [I")
+                    .end();
+        }
+        out.line("return").dedent();
+        out.line(".end method");
+
+        // result[i] = s.charAt(2 * i) << 16 | s.charAt(2 * i + 1)
+        var decoderMethod = """
+
+                .method private static %s(Ljava/lang/String;)[I
+                   .limit stack 6
+                   .limit locals 3
+                   aload_0
+                   invokevirtual java/lang/String/length()I
+                   iconst_2
+                   idiv
+                   newarray int
+                   astore_1
+                   iconst_0
+                   istore_2
+                next:
+                   iload_2
+                   aload_1
+                   arraylength
+                   if_icmpge done
+                   aload_1
+                   iload_2
+                   aload_0
+                   iload_2
+                   iconst_2
+                   imul
+                   invokevirtual java/lang/String/charAt(I)C
+                   bipush 16
+                   ishl
+                   aload_0
+                   iload_2
+                   iconst_2
+                   imul
+                   iconst_1
+                   iadd
+                   invokevirtual java/lang/String/charAt(I)C
+                   ior
+                   iastore
+                   iinc 2 1
+                   goto next
+                done:
+                   aload_1
+                   areturn
+                .end method
+                """.formatted(decoder);
+        out.append(decoderMethod);
+    }
+
+    /**
+     * Creates an array of constant elements as a copy of its template, instead of storing each element. Shared
+     * arrays are never changed, so the template itself is used.
+     */
+    private void generateConstantArray(ConstantArrays.Array array, Operand dest, JasminEmitter out) {
+        var className = currentMethod.getOllirClass().getClassName();
+
+        out.line().append("getstatic ").append(className).append("/").append(array.field()).append(" [I").end();
+        if (!array.shared()) {
+            out.line("invokevirtual [I/clone()Ljava/lang/Object;");
+            out.line("checkcast [I");
         }
+        limits.increment();
 
-        return code.toString();
+        store(dest, out);
     }
 
-    private String generateMethod(Method method) {
+    private void generateMethod(Method method, JasminEmitter out) {
         //System.out.println("STARTING METHOD " + method.getMethodName());
         // set method
         currentMethod = method;
         limits = new Limits();
 
-        var code = new StringBuilder();
+        // The body is generated first, since the limits are only known at the end
+        bodyBuffer.setLength(0);
+        var body = new JasminEmitter(bodyBuffer).indent();
+
+        var instructions = method.getInstructions();
+        for (int i = 0; i < instructions.size(); i++) {
+            var inst = instructions.get(i);
+
+            for (var label : method.getLabels(inst)) {
+                body.label(label);
+            }
+
+            // The stores of the elements of a constant array are replaced by the copy of its template
+            var constantArray = constantArrays.get(inst);
+            if (constantArray != null) {
+                generateConstantArray(constantArray, (Operand) ((AssignInstruction) inst).getDest(), body);
+                i += constantArray.length();
+                continue;
+            }
+
+            apply(inst, body);
+
+            if (inst instanceof CallInstruction && !((CallInstruction) inst).getReturnType().toString().equals("VOID")) {
+                body.line("pop");
+                limits.decrement();
+            }
+        }
 
         // calculate modifier
         var modifier = types.getModifier(method.getMethodAccessModifier());
@@ -399,51 +512,33 @@ public class JasminGenerator {
 
         var returnType = types.getDescriptor(method.getReturnType());
 
-        code.append("\n.method ").append(modifier);
+        out.end().line().append(".method ").append(modifier);
 
         if (method.isStaticMethod())
-            code.append("static ");
-
-        code.append(methodName).append("(").append(params).append(")").append(returnType).append(NL);
-
-        var bodyCode = new StringBuilder();
-        for (var inst : method.getInstructions()) {
-
-            for (var label : method.getLabels(inst)) {
-                bodyCode.append(label).append(":").append(NL);
-            }
+            out.append("static ");
 
-            var instCode = StringLines.getLines(apply(inst)).stream()
-                    .collect(Collectors.joining(NL + TAB, TAB, NL));
-            bodyCode.append(instCode);
-
-            if (inst instanceof CallInstruction && !((CallInstruction) inst).getReturnType().toString().equals("VOID")) {
-                bodyCode.append(TAB).append("pop").append(NL);
-                limits.decrement();
-            }
-        }
+        out.append(methodName).append("(").append(params).append(")").append(returnType).end();
 
         // Add limits
-        code.append(TAB).append(".limit stack ").append(limits.getMaxStack()).append(NL);
+        out.indent();
+        out.line().append(".limit stack ").append(limits.getMaxStack()).end();
 
         for (var var : method.getVarTable().values())
             limits.updateLocals(var.getVirtualReg());
 
-        code.append(TAB).append(".limit locals ").append(limits.getMaxLocals()).append(NL);
+        out.line().append(".limit locals ").append(limits.getMaxLocals()).end();
+        out.dedent();
 
-        code.append(bodyCode);
-        code.append(".end method\n");
+        out.append(bodyBuffer);
+        out.line(".end method");
 
         // unset method
         currentMethod = null;
         limits = null;
         //System.out.println("ENDING METHOD " + method.getMethodName());
-        return code.toString();
     }
 
-    private String generateAssign(AssignInstruction assign) {
-        var code = new StringBuilder();
-
+    private void generateAssign(AssignInstruction assign, JasminEmitter out) {
         var lhs = assign.getDest();
         var rhs = assign.getRhs();
 
@@ -493,34 +588,34 @@ public class JasminGenerator {
 
             if (varOp != null && value >= -128 && value <= 127) {
                 var reg = currentMethod.getVarTable().get(lhsOp.getName()).getVirtualReg();
-                code.append("iinc ").append(reg).append(" ").append(value).append(NL);
-                return code.toString();
+                out.line().append("iinc ").append(reg).append(" ").append(value).end();
+                return;
             }
         }
 
         if (lhs instanceof ArrayOperand arrayOperand) {
-            code.append(apply(arrayOperand));
-            code.append(apply(arrayOperand.getIndexOperands().getFirst()));
-            code.append(apply(rhs));
-            code.append("iastore").append(NL);
+            apply(arrayOperand, out);
+            apply(arrayOperand.getIndexOperands().getFirst(), out);
+            apply(rhs, out);
+            out.line("iastore");
 
             limits.decrement(3);
 
-            return code.toString();
+            return;
         }
 
         if (rhs instanceof SingleOpInstruction singleOp
                 && singleOp.getSingleOperand() instanceof ArrayOperand arrayOperandRhs) {
-            code.append(apply(arrayOperandRhs));
-            code.append(apply(arrayOperandRhs.getIndexOperands().getFirst()));
-            code.append("iaload").append(NL);
+            apply(arrayOperandRhs, out);
+            apply(arrayOperandRhs.getIndexOperands().getFirst(), out);
+            out.line("iaload");
             limits.decrement(2);
             limits.increment();
             if (!(lhs instanceof Operand operand)) {
                 throw new NotImplementedException(lhs.getClass());
             }
-            code.append(store(operand));
-            return code.toString();
+            store(operand, out);
+            return;
         }
 
 
@@ -529,46 +624,42 @@ public class JasminGenerator {
         }
 
         // generate code for loading what's on the right
-        code.append(apply(rhs));
+        apply(rhs, out);
 
         var operand = (Operand) lhs;
 
-        code.append(store(operand));
-
-        return code.toString();
+        store(operand, out);
     }
 
-    private String generateSingleOp(SingleOpInstruction singleOp) {
-        return apply(singleOp.getSingleOperand());
+    private void generateSingleOp(SingleOpInstruction singleOp, JasminEmitter out) {
+        apply(singleOp.getSingleOperand(), out);
     }
 
-    private String generateLiteral(LiteralElement literal) {
+    private void generateLiteral(LiteralElement literal, JasminEmitter out) {
         limits.increment();
 
         int intValue = Integer.parseInt(literal.getLiteral());
 
         if (intValue == -1) {
-            return "iconst_m1" + NL;
+            out.line("iconst_m1");
         } else if (intValue >= 0 && intValue <= 5) {
-            return "iconst_" + intValue + NL;
+            out.line().append("iconst_").append(intValue).end();
         } else if (intValue >= -128 && intValue <= 127) {
-            return "bipush " + intValue + NL;
+            out.line().append("bipush ").append(intValue).end();
         } else if (intValue >= -32768 && intValue <= 32767) {
-            return "sipush " + intValue + NL;
+            out.line().append("sipush ").append(intValue).end();
         } else {
-            return "ldc " + literal.getLiteral() + NL;
+            out.line().append("ldc ").append(literal.getLiteral()).end();
         }
     }
 
-    private String generateOperand(Operand operand) {
-        return load(operand);
+    private void generateOperand(Operand operand, JasminEmitter out) {
+        load(operand, out);
     }
 
-    private String generateBinaryOp(BinaryOpInstruction binaryOp) {
-        var code = new StringBuilder();
-
+    private void generateBinaryOp(BinaryOpInstruction binaryOp, JasminEmitter out) {
         // load values on the left
-        code.append(apply(binaryOp.getLeftOperand()));
+        apply(binaryOp.getLeftOperand(), out);
 
         // TODO: Hardcoded for int type, needs to be expanded
         //var typePrefix = "i";
@@ -581,6 +672,9 @@ public class JasminGenerator {
             case MUL -> "imul";
             case SUB -> "isub";
             case DIV -> "idiv";
+            case SHL -> "ishl";
+            case SHR -> "ishr";
+            case SHRR -> "iushr";
             case AND, ANDB -> "iand"; //TODO: Check if this is correct
             case LTH -> {
                 if (binaryOp.getRightOperand() instanceof LiteralElement rightLiteral &&
@@ -605,7 +699,7 @@ public class JasminGenerator {
 
         if (!compareAgainstZero) {
             // load values on the right
-            code.append(apply(binaryOp.getRightOperand()));
+            apply(binaryOp.getRightOperand(), out);
             limits.decrement(2);
             limits.increment();
         } else {
@@ -614,7 +708,8 @@ public class JasminGenerator {
             limits.increment();
         }
 
-        var conditionalBranchCode = switch (binaryOp.getOperation().getOpType()) {
+        //out.line().append(typePrefix + op).end();
+        switch (binaryOp.getOperation().getOpType()) {
             case LTH, GTE -> {
                 var labelNumber = String.valueOf(currentMethod.getLabels().size());
                 var trueLabel = "j_true_" + labelNumber;
@@ -623,38 +718,28 @@ public class JasminGenerator {
                 currentMethod.addLabel(trueLabel, binaryOp);
                 //currentMethod.addLabel(endLabel, binaryOp);
 
-                yield " " + trueLabel + NL
-                        + "iconst_0" + NL
-                        + "goto " + endLabel + NL
-                        + trueLabel + ": " + NL
-                        + "iconst_1" + NL
-                        + endLabel + ":";
+                out.line().append(op).append(" ").append(trueLabel).end();
+                out.line("iconst_0");
+                out.line().append("goto ").append(endLabel).end();
+                out.label(trueLabel);
+                out.line("iconst_1");
+                out.label(endLabel);
             }
-            default -> "";
-        };
-
-        //code.append(typePrefix + op).append(NL);
-        code.append(op).append(conditionalBranchCode).append(NL);
-
-        return code.toString();
+            default -> out.line(op);
+        }
     }
 
-    private String generateReturn(ReturnInstruction returnInst) {
-        var code = new StringBuilder();
-
+    private void generateReturn(ReturnInstruction returnInst, JasminEmitter out) {
         if (returnInst.getOperand().isEmpty()) {
-            code.append("return").append(NL);
+            out.line("return");
         } else {
-            var loadOperand = apply(returnInst.getOperand().get());
-            code.append(loadOperand);
-            code.append(types.getPrefix(returnInst.getReturnType())).append("return").append(NL);
+            apply(returnInst.getOperand().get(), out);
+            out.line().append(types.getPrefix(returnInst.getReturnType())).append("return").end();
             limits.decrement();
         }
-
-        return code.toString();
     }
 
-    private String store(Operand operand) {
+    private void store(Operand operand, JasminEmitter out) {
         // get register
         var reg = currentMethod.getVarTable().get(operand.getName());
 
@@ -666,12 +751,12 @@ public class JasminGenerator {
         var virtualReg = reg.getVirtualReg();
 
         if (virtualReg >= 0 && virtualReg <= 3)
-            return prefix + "store_" + virtualReg + NL;
-
-        return prefix + "store " + virtualReg + NL;
+            out.line().append(prefix).append("store_").append(virtualReg).end();
+        else
+            out.line().append(prefix).append("store ").append(virtualReg).end();
     }
 
-    private String load(Operand operand) {
+    private void load(Operand operand, JasminEmitter out) {
         // get register
         var reg = currentMethod.getVarTable().get(operand.getName());
 
@@ -687,8 +772,8 @@ public class JasminGenerator {
         var virtualReg = reg.getVirtualReg();
 
         if (virtualReg >= 0 && virtualReg <= 3)
-            return prefix + "load_" + virtualReg + NL;
-
-        return prefix + "load " + virtualReg + NL;
+            out.line().append(prefix).append("load_").append(virtualReg).end();
+        else
+            out.line().append(prefix).append("load ").append(virtualReg).end();
     }
-}
\ No newline at end of file
+}
@@ -3,6 +3,7 @@ package pt.up.fe.comp2025.backend;
 import org.specs.comp.ollir.*;
 import org.specs.comp.ollir.type.*;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2025.ast.TypeRegistry;
 import pt.up.fe.specs.util.SpecsCheck;
 import pt.up.fe.specs.util.exceptions.NotImplementedException;
 
@@ -52,19 +53,24 @@ public class JasminUtils {
     }
 
     public String getDescriptor(Type type) {
+        // Descriptors are cached by the canonical Jmm types
         if (type instanceof ArrayType arrayType) {
-            return "[" + getDescriptor(arrayType.getElementType());
+            return TypeRegistry.getJvmDescriptor(TypeRegistry.get(getTypeName(arrayType.getElementType()), true));
         }
+        return TypeRegistry.getJvmDescriptor(TypeRegistry.get(getTypeName(type), false));
+    }
+
+    private String getTypeName(Type type) {
         if (type instanceof BuiltinType builtinType) {
             return switch (builtinType.getKind()) {
-                case INT32 -> "I";
-                case BOOLEAN -> "Z";
-                case VOID -> "V";
-                case STRING -> "Ljava/lang/String;";
+                case INT32 -> "int";
+                case BOOLEAN -> "boolean";
+                case VOID -> "void";
+                case STRING -> "String";
             };
         }
         if (type instanceof ClassType classType) {
-            return "L" + classType.getName().replace('.', '/') + ";";
+            return classType.getName();
         }
         throw new NotImplementedException(type);
     }
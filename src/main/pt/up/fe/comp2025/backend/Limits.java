@@ -8,7 +8,7 @@ public class Limits {
     private int currentStack;
 
     public Limits() {
-        this.maxLocals = -1;
+        this.maxLocals = 0;
         this.maxStack = 0;
         this.currentStack = 0;
     }
@@ -20,9 +20,6 @@ public class Limits {
     }
 
     public int getMaxLocals() {
-        //if (maxLocals == -1) {
-            //return 1;
-        //}
         return maxLocals;
     }
 
@@ -0,0 +1,139 @@
+package pt.up.fe.comp2025.optimization;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2025.ast.Kind;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Control flow graph of a method, built from the statements of the AST.
+ * <p>
+ * There is one node for each simple statement (assignments, expression statements and returns) and one branch
+ * node for the condition of each if and while statement. Block statements do not have nodes.
+ */
+public class AstCfg {
+
+    public static class Node {
+
+        private final JmmNode stmt;
+        private final List<Node> successors;
+        private final List<Node> predecessors;
+
+        private Node(JmmNode stmt) {
+            this.stmt = stmt;
+            this.successors = new ArrayList<>();
+            this.predecessors = new ArrayList<>();
+        }
+
+        /**
+         * @return the statement of the node, null for the exit node
+         */
+        public JmmNode getStmt() {
+            return stmt;
+        }
+
+        /**
+         * @return true if this node is the condition of an if or while statement
+         */
+        public boolean isBranch() {
+            return stmt != null && Kind.check(stmt, Kind.IF_STMT, Kind.WHILE_STMT);
+        }
+
+        /**
+         * @return the condition of a branch node
+         */
+        public JmmNode getCondition() {
+            return stmt.getChild(0);
+        }
+
+        /**
+         * Branch nodes have exactly two successors: the first is taken when the condition is true and the second when
+         * it is false.
+         */
+        public List<Node> getSuccessors() {
+            return successors;
+        }
+
+        public List<Node> getPredecessors() {
+            return predecessors;
+        }
+
+        private void addSuccessor(Node successor) {
+            successors.add(successor);
+            successor.predecessors.add(this);
+        }
+    }
+
+    private final List<Node> nodes;
+    private final Node exit;
+    private final Node entry;
+
+    public AstCfg(JmmNode methodDecl) {
+        this.nodes = new ArrayList<>();
+        this.exit = new Node(null);
+
+        var stmts = methodDecl.getChildren().stream()
+                .filter(Kind.STMT::check)
+                .toList();
+        this.entry = buildStmts(stmts, exit);
+
+        nodes.add(exit);
+    }
+
+    public Node getEntry() {
+        return entry;
+    }
+
+    public Node getExit() {
+        return exit;
+    }
+
+    public List<Node> getNodes() {
+        return nodes;
+    }
+
+    // Statements are built backwards, each one knowing the node that follows it
+    private Node buildStmts(List<JmmNode> stmts, Node follow) {
+        var next = follow;
+        for (int i = stmts.size() - 1; i >= 0; i--)
+            next = buildStmt(stmts.get(i), next);
+
+        return next;
+    }
+
+    private Node buildStmt(JmmNode stmt, Node follow) {
+        switch (Kind.fromString(stmt.getKind())) {
+            case BLOCK_STMT:
+                return buildStmts(stmt.getChildren(), follow);
+            case IF_STMT: {
+                var branch = newNode(stmt);
+                branch.addSuccessor(buildStmt(stmt.getChild(1), follow));
+                branch.addSuccessor(buildStmt(stmt.getChild(2), follow));
+                return branch;
+            }
+            case WHILE_STMT: {
+                var branch = newNode(stmt);
+                branch.addSuccessor(buildStmt(stmt.getChild(1), branch));
+                branch.addSuccessor(follow);
+                return branch;
+            }
+            case RETURN_STMT: {
+                var node = newNode(stmt);
+                node.addSuccessor(exit);
+                return node;
+            }
+            default: {
+                var node = newNode(stmt);
+                node.addSuccessor(follow);
+                return node;
+            }
+        }
+    }
+
+    private Node newNode(JmmNode stmt) {
+        var node = new Node(stmt);
+        nodes.add(node);
+        return node;
+    }
+}
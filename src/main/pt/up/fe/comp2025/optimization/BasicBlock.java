@@ -0,0 +1,78 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.specs.comp.ollir.inst.Instruction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sequence of OLLIR instructions that always run one after the other. Only the first instruction can be the target
+ * of a jump and only the last one can jump.
+ */
+public class BasicBlock {
+
+    private int index;
+    private final List<String> labels;
+    private final List<Instruction> instructions;
+    private final List<BasicBlock> successors;
+    private final List<BasicBlock> predecessors;
+
+    BasicBlock(int index) {
+        this.index = index;
+        this.labels = new ArrayList<>();
+        this.instructions = new ArrayList<>();
+        this.successors = new ArrayList<>();
+        this.predecessors = new ArrayList<>();
+    }
+
+    /**
+     * @return the position of the block in the layout of the method
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    void setIndex(int index) {
+        this.index = index;
+    }
+
+    /**
+     * @return the labels of the first instruction of the block
+     */
+    public List<String> getLabels() {
+        return labels;
+    }
+
+    public List<Instruction> getInstructions() {
+        return instructions;
+    }
+
+    /**
+     * @return the last instruction of the block, or null if the block is empty
+     */
+    public Instruction getLast() {
+        return instructions.isEmpty() ? null : instructions.getLast();
+    }
+
+    /**
+     * Blocks that end with a conditional branch have two successors: the first is the target of the branch and the
+     * second is the next block in the layout.
+     */
+    public List<BasicBlock> getSuccessors() {
+        return successors;
+    }
+
+    public List<BasicBlock> getPredecessors() {
+        return predecessors;
+    }
+
+    void addSuccessor(BasicBlock successor) {
+        successors.add(successor);
+        successor.predecessors.add(this);
+    }
+
+    @Override
+    public String toString() {
+        return "B" + index + labels;
+    }
+}
@@ -0,0 +1,87 @@
+package pt.up.fe.comp2025.optimization;
+
+import pt.up.fe.comp.jmm.ast.AJmmVisitor;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2025.ast.Kind;
+
+import java.util.ArrayList;
+
+/**
+ * Removes the branches that can never run, once {@link ConstantFoldingVisitor} has turned their conditions into
+ * literals: an if statement with a constant condition is replaced by the statement that is taken and a while
+ * statement whose condition is false is removed.
+ */
+public class BranchFoldingVisitor extends AJmmVisitor<Void, Void> {
+
+    private int folded;
+
+    public BranchFoldingVisitor() {
+        this.folded = 0;
+    }
+
+    /**
+     * @return the number of if and while statements removed
+     */
+    public int getFolded() {
+        return folded;
+    }
+
+    @Override
+    protected void buildVisitor() {
+        addVisit(Kind.IF_STMT, this::foldIfStmt);
+        addVisit(Kind.WHILE_STMT, this::foldWhileStmt);
+        setDefaultVisit(this::defaultVisit);
+    }
+
+    private Void foldIfStmt(JmmNode node, Void unused) {
+        defaultVisit(node, unused);
+
+        var condition = getConstantCondition(node.getChild(0));
+        if (condition == null)
+            return null;
+
+        // The statement taken is detached first, since it is a child of the node it replaces
+        var taken = node.removeChild(condition ? 1 : 2);
+        node.replace(taken);
+        folded++;
+
+        return null;
+    }
+
+    private Void foldWhileStmt(JmmNode node, Void unused) {
+        defaultVisit(node, unused);
+
+        if (Boolean.FALSE.equals(getConstantCondition(node.getChild(0)))) {
+            node.delete();
+            folded++;
+        }
+
+        return null;
+    }
+
+    /**
+     * @return the value of a condition made only of boolean literals, or null if it is not constant
+     */
+    private Boolean getConstantCondition(JmmNode condition) {
+        switch (Kind.fromString(condition.getKind())) {
+            case BOOLEAN_LITERAL:
+                return Boolean.parseBoolean(condition.get("value"));
+            case PAREN_EXPR:
+                return getConstantCondition(condition.getChild(0));
+            case NOT_EXPR: {
+                var value = getConstantCondition(condition.getChild(0));
+                return value == null ? null : !value;
+            }
+            default:
+                return null;
+        }
+    }
+
+    private Void defaultVisit(JmmNode node, Void unused) {
+        // Children can be removed or replaced while they are visited
+        for (var child : new ArrayList<>(node.getChildren()))
+            visit(child);
+
+        return null;
+    }
+}
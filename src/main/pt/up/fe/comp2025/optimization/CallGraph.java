@@ -0,0 +1,156 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.specs.comp.ollir.AccessModifier;
+import org.specs.comp.ollir.ClassUnit;
+import org.specs.comp.ollir.Element;
+import org.specs.comp.ollir.LiteralElement;
+import org.specs.comp.ollir.Method;
+import org.specs.comp.ollir.Operand;
+import org.specs.comp.ollir.inst.*;
+import org.specs.comp.ollir.type.ClassType;
+
+import java.util.*;
+
+/**
+ * Calls between the methods of an OLLIR class. Calls to methods of other classes (imports and the super class) are
+ * not part of the graph.
+ */
+public class CallGraph {
+
+    private final ClassUnit classUnit;
+    private final Map<String, Method> methods;
+    private final Map<String, Set<String>> callees;
+
+    public CallGraph(ClassUnit classUnit) {
+        this.classUnit = classUnit;
+        this.methods = new LinkedHashMap<>();
+        this.callees = new LinkedHashMap<>();
+
+        for (var method : classUnit.getMethods())
+            if (!method.isConstructMethod())
+                methods.put(method.getMethodName(), method);
+
+        for (var method : methods.values()) {
+            var called = new LinkedHashSet<String>();
+            for (var inst : method.getInstructions()) {
+                var call = getCall(inst);
+                if (call != null && getCalledMethod(call) != null)
+                    called.add(getCalledMethod(call).getMethodName());
+            }
+            callees.put(method.getMethodName(), called);
+        }
+    }
+
+    /**
+     * @return the methods of the class, except the constructor
+     */
+    public Collection<Method> getMethods() {
+        return methods.values();
+    }
+
+    /**
+     * @return the names of the methods of the class called by the method
+     */
+    public Set<String> getCallees(String methodName) {
+        return callees.getOrDefault(methodName, Set.of());
+    }
+
+    /**
+     * @return true if the method can call itself, directly or through other methods of the class
+     */
+    public boolean isRecursive(String methodName) {
+        var visited = new HashSet<String>();
+        var worklist = new ArrayDeque<>(getCallees(methodName));
+
+        while (!worklist.isEmpty()) {
+            var current = worklist.poll();
+            if (current.equals(methodName))
+                return true;
+            if (visited.add(current))
+                worklist.addAll(getCallees(current));
+        }
+
+        return false;
+    }
+
+    /**
+     * @return the method of the class called by the instruction, or null if it calls a method of another class
+     */
+    public Method getCalledMethod(CallInstruction call) {
+        boolean sameClass = switch (call) {
+            case InvokeVirtualInstruction virtual ->
+                    virtual.getCaller().getType() instanceof ClassType type
+                            && type.getName().equals(classUnit.getClassName());
+            case InvokeStaticInstruction invokeStatic ->
+                    invokeStatic.getCaller() instanceof Operand caller
+                            && caller.getName().equals(classUnit.getClassName());
+            default -> false;
+        };
+
+        if (!sameClass || !(call.getMethodName() instanceof LiteralElement name))
+            return null;
+
+        // Methods of the super class can have the same name with other parameters
+        var method = methods.get(name.getLiteral());
+        if (method == null || method.getParams().size() != call.getArguments().size())
+            return null;
+
+        for (int i = 0; i < call.getArguments().size(); i++)
+            if (!method.getParams().get(i).getType().toString()
+                    .equals(call.getArguments().get(i).getType().toString()))
+                return null;
+
+        return method;
+    }
+
+    /**
+     * @return true if the call always runs the given method of the class, which is only known for static and
+     * private methods, and for virtual calls on an object created in the caller with "new" of this class (any other
+     * object could be of a subclass that overrides the method)
+     */
+    public boolean isExactTarget(Method caller, CallInstruction call, Method callee) {
+        return callee.isStaticMethod() || callee.getMethodAccessModifier() == AccessModifier.PRIVATE
+                || isExactObject(caller, call.getCaller(), new HashSet<>());
+    }
+
+    /**
+     * @return true if the variable always holds an object created in the method with "new" of this class
+     */
+    private boolean isExactObject(Method method, Element element, Set<String> visited) {
+        if (!(element instanceof Operand operand) || !visited.add(operand.getName()))
+            return false;
+
+        boolean hasDefs = false;
+        for (var inst : method.getInstructions()) {
+            var def = InstructionUtils.getDef(inst);
+            if (def == null || !def.getName().equals(operand.getName()))
+                continue;
+
+            hasDefs = true;
+            var rhs = ((AssignInstruction) inst).getRhs();
+
+            boolean exact = switch (rhs) {
+                case NewInstruction newInst -> newInst.getReturnType() instanceof ClassType type
+                        && type.getName().equals(classUnit.getClassName());
+                case SingleOpInstruction single -> isExactObject(method, single.getSingleOperand(), visited);
+                default -> false;
+            };
+
+            if (!exact)
+                return false;
+        }
+
+        // Parameters and "this" have no assignments
+        return hasDefs;
+    }
+
+    /**
+     * @return the call made by the instruction, on its own or as the value of an assignment, or null
+     */
+    public static CallInstruction getCall(Instruction inst) {
+        if (inst instanceof AssignInstruction assign)
+            inst = assign.getRhs();
+
+        return inst instanceof CallInstruction call ? call : null;
+    }
+}
@@ -47,7 +47,7 @@ public class ConstantFoldingVisitor extends AJmmVisitor<Void, Void> {
                 List<String> hierarchy = new ArrayList<>(List.of(Kind.BOOLEAN_LITERAL.toString(), "Expr"));
                 JmmNode newNode = new JmmNodeImpl(hierarchy);
                 newNode.put("value", Boolean.toString(comparisonResult));
-                newNode.put("type", TypeUtils.newBooleanType().toString());
+                TypeUtils.setType(newNode, TypeUtils.newBooleanType());
                 node.replace(newNode);
             } else {
                 switch (op) {
@@ -61,7 +61,9 @@ public class ConstantFoldingVisitor extends AJmmVisitor<Void, Void> {
                         result = leftVal * rightVal;
                         break;
                     case "/":
-                        if (rightVal == 0) throw new ArithmeticException("Division by zero");
+                        // The division by zero is left to run, and throw, at runtime
+                        if (rightVal == 0)
+                            return null;
                         result = leftVal / rightVal;
                         break;
                     default:
@@ -72,7 +74,7 @@ public class ConstantFoldingVisitor extends AJmmVisitor<Void, Void> {
                 // Create a new literal node
                 JmmNode newNode = new JmmNodeImpl(left.getHierarchy()); // left or right can be used
                 newNode.put("value", Integer.toString(result));
-                newNode.put("type", left.get("type"));
+                TypeUtils.setType(newNode, TypeUtils.getType(left));
                 node.replace(newNode);
             }
 
@@ -89,9 +91,15 @@ public class ConstantFoldingVisitor extends AJmmVisitor<Void, Void> {
             // Create a new literal node
             JmmNode newNode = new JmmNodeImpl(left.getHierarchy()); // left or right can be used
             newNode.put("value", Boolean.toString(result));
-            newNode.put("type", left.get("type"));
+            TypeUtils.setType(newNode, TypeUtils.getType(left));
             node.replace(newNode);
 
+        } else if (op.equals("&&") && Kind.BOOLEAN_LITERAL.check(left)) {
+            // The right operand is only evaluated when the left one is true
+            var result = Boolean.parseBoolean(left.get("value")) ? right : left;
+            node.removeChild(result);
+            node.replace(result);
+
         } else {
             return null;
         }
@@ -0,0 +1,263 @@
+package pt.up.fe.comp2025.optimization;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp2025.ast.Kind;
+import pt.up.fe.comp2025.ast.TypeUtils;
+import pt.up.fe.comp2025.symboltable.JmmSymbolTable;
+
+import java.util.*;
+
+/**
+ * Conditional constant propagation over the {@link AstCfg} of a method, following the SCCP algorithm by Wegman and
+ * Zadeck (without SSA form, so the values of the variables are kept per CFG node).
+ * <p>
+ * Each local variable has a value in the lattice TOP (no value seen yet) > constant > BOTTOM (not a constant).
+ * Only the edges found to be executable are followed: a branch whose condition evaluates to a constant only
+ * propagates values to the side that is taken, and values coming from different executable edges are combined with
+ * the meet operator. The analysis evaluates expressions itself, so a single run reaches the fixpoint.
+ * <p>
+ * Afterwards, every reference to a local variable that holds a constant is replaced by a literal. Constant
+ * expressions that result from the replacement are left for {@link ConstantFoldingVisitor}.
+ * <p>
+ * The values that enter each while statement from outside the loop are also combined apart, and the loops whose
+ * condition is true with those values get the attribute {@link #ALWAYS_ENTERED}: their body runs at least once.
+ */
+public class ConstantPropagation {
+
+    /**
+     * Attribute of the while statements whose condition always holds when the loop is reached, so rotated loops
+     * don't need to test it before the first iteration (see {@link OllirGeneratorVisitor}).
+     */
+    public static final String ALWAYS_ENTERED = "alwaysEntered";
+
+    // Value of the lattice for variables that are not constant. Variables without a value are TOP.
+    private static final Object BOTTOM = new Object();
+
+    private final JmmSymbolTable table;
+
+    public ConstantPropagation(SymbolTable table) {
+        this.table = (JmmSymbolTable) table;
+    }
+
+    /**
+     * @param methodDecl the method to optimize
+     * @return the number of variable references replaced by constants
+     */
+    public int apply(JmmNode methodDecl) {
+        var methodName = methodDecl.get("name");
+        var cfg = new AstCfg(methodDecl);
+
+        var entryStates = new HashMap<AstCfg.Node, Map<String, Object>>();
+        var inStates = analyze(cfg, methodName, entryStates);
+
+        for (var entry : entryStates.entrySet()) {
+            var loop = entry.getKey();
+            if (Boolean.TRUE.equals(evaluate(loop.getCondition(), entry.getValue(), methodName)))
+                loop.getStmt().put(ALWAYS_ENTERED, "true");
+        }
+
+        int replaced = 0;
+        for (var node : cfg.getNodes()) {
+            var in = inStates.get(node);
+
+            // Unreachable or exit node
+            if (in == null || node.getStmt() == null)
+                continue;
+
+            // Statements inside the branches have their own nodes, only the condition belongs to a branch node
+            var exprs = node.isBranch() ? List.of(node.getCondition()) : node.getStmt().getChildren();
+            for (var expr : exprs)
+                replaced += replaceConstants(expr, in, methodName);
+        }
+
+        return replaced;
+    }
+
+    /**
+     * @param entryStates receives, for each while statement reached, the meet of the states that enter it from
+     *                    outside the loop
+     */
+    private Map<AstCfg.Node, Map<String, Object>> analyze(AstCfg cfg, String methodName,
+                                                         Map<AstCfg.Node, Map<String, Object>> entryStates) {
+        var inStates = new HashMap<AstCfg.Node, Map<String, Object>>();
+        var worklist = new LinkedHashSet<AstCfg.Node>();
+
+        inStates.put(cfg.getEntry(), new HashMap<>());
+        worklist.add(cfg.getEntry());
+
+        while (!worklist.isEmpty()) {
+            var node = worklist.removeFirst();
+            var in = inStates.get(node);
+
+            if (node.getStmt() == null)
+                continue;
+
+            List<AstCfg.Node> executable;
+            var out = in;
+
+            if (node.isBranch()) {
+                var condition = evaluate(node.getCondition(), in, methodName);
+                if (condition instanceof Boolean value)
+                    executable = List.of(node.getSuccessors().get(value ? 0 : 1));
+                else if (condition == BOTTOM)
+                    executable = node.getSuccessors();
+                else
+                    executable = List.of();
+            } else {
+                executable = node.getSuccessors();
+
+                var stmt = node.getStmt();
+                if (Kind.ASSIGN_STMT.check(stmt) && table.isLocalVariable(methodName, stmt.get("name"))) {
+                    out = new HashMap<>(in);
+                    var value = evaluate(stmt.getChild(0), in, methodName);
+                    if (value == null)
+                        out.remove(stmt.get("name"));
+                    else
+                        out.put(stmt.get("name"), value);
+                }
+            }
+
+            for (var succ : executable) {
+                // Edges into a while statement that don't come from its body
+                if (succ.isBranch() && Kind.WHILE_STMT.check(succ.getStmt())
+                        && !isInside(node.getStmt(), succ.getStmt())) {
+                    var entryState = entryStates.get(succ);
+                    if (entryState == null)
+                        entryStates.put(succ, new HashMap<>(out));
+                    else
+                        meet(entryState, out);
+                }
+
+                var succIn = inStates.get(succ);
+                if (succIn == null) {
+                    inStates.put(succ, new HashMap<>(out));
+                    worklist.add(succ);
+                } else if (meet(succIn, out)) {
+                    worklist.add(succ);
+                }
+            }
+        }
+
+        return inStates;
+    }
+
+    private static boolean isInside(JmmNode stmt, JmmNode loop) {
+        for (var node = stmt; node != null; node = node.getParent())
+            if (node == loop)
+                return true;
+
+        return false;
+    }
+
+    /**
+     * Lowers the state to the meet of itself and the given state.
+     *
+     * @return true if the state changed
+     */
+    private boolean meet(Map<String, Object> state, Map<String, Object> other) {
+        boolean changed = false;
+
+        for (var entry : other.entrySet()) {
+            var current = state.get(entry.getKey());
+            var value = entry.getValue();
+
+            if (current == null) {
+                state.put(entry.getKey(), value);
+                changed = true;
+            } else if (current != BOTTOM && !current.equals(value)) {
+                state.put(entry.getKey(), BOTTOM);
+                changed = true;
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * @return the value of the expression: an Integer or Boolean constant, BOTTOM, or null for TOP
+     */
+    private Object evaluate(JmmNode expr, Map<String, Object> state, String methodName) {
+        switch (Kind.fromString(expr.getKind())) {
+            case INTEGER_LITERAL:
+                return Integer.parseInt(expr.get("value"));
+            case BOOLEAN_LITERAL:
+                return Boolean.parseBoolean(expr.get("value"));
+            case VAR_REF_EXPR:
+                if (!table.isLocalVariable(methodName, expr.get("name")))
+                    return BOTTOM;
+                return state.get(expr.get("name"));
+            case PAREN_EXPR:
+                return evaluate(expr.getChild(0), state, methodName);
+            case NOT_EXPR: {
+                var value = evaluate(expr.getChild(0), state, methodName);
+                return value instanceof Boolean bool ? !bool : value;
+            }
+            case BINARY_EXPR:
+                return evaluateBinaryExpr(expr, state, methodName);
+            default:
+                return BOTTOM;
+        }
+    }
+
+    private Object evaluateBinaryExpr(JmmNode binaryExpr, Map<String, Object> state, String methodName) {
+        var op = binaryExpr.get("op");
+        var left = evaluate(binaryExpr.getChild(0), state, methodName);
+
+        // The right operand is not evaluated at runtime
+        if (op.equals("&&") && Boolean.FALSE.equals(left))
+            return false;
+
+        var right = evaluate(binaryExpr.getChild(1), state, methodName);
+
+        if (left == BOTTOM || right == BOTTOM)
+            return BOTTOM;
+        if (left == null || right == null)
+            return null;
+
+        if (op.equals("&&"))
+            return (Boolean) left && (Boolean) right;
+
+        int leftVal = (Integer) left;
+        int rightVal = (Integer) right;
+        return switch (op) {
+            case "+" -> leftVal + rightVal;
+            case "-" -> leftVal - rightVal;
+            case "*" -> leftVal * rightVal;
+            // Division by zero must still happen at runtime
+            case "/" -> rightVal == 0 ? BOTTOM : leftVal / rightVal;
+            case "<" -> leftVal < rightVal;
+            default -> BOTTOM;
+        };
+    }
+
+    private int replaceConstants(JmmNode expr, Map<String, Object> state, String methodName) {
+        if (Kind.VAR_REF_EXPR.check(expr)) {
+            var varName = expr.get("name");
+            var value = state.get(varName);
+
+            if (!table.isLocalVariable(methodName, varName) || value == null || value == BOTTOM)
+                return 0;
+
+            expr.replace(newLiteral(value));
+            return 1;
+        }
+
+        int replaced = 0;
+        for (var child : expr.getChildren())
+            replaced += replaceConstants(child, state, methodName);
+
+        return replaced;
+    }
+
+    private JmmNode newLiteral(Object value) {
+        var kind = value instanceof Integer ? Kind.INTEGER_LITERAL : Kind.BOOLEAN_LITERAL;
+
+        JmmNode literal = new JmmNodeImpl(new ArrayList<>(List.of(kind.toString(), "Expr")));
+        literal.put("value", value.toString());
+        TypeUtils.setType(literal, value instanceof Integer ? TypeUtils.newIntType() : TypeUtils.newBooleanType());
+
+        return literal;
+    }
+}
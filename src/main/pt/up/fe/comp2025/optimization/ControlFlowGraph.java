@@ -0,0 +1,226 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.specs.comp.ollir.Method;
+import org.specs.comp.ollir.inst.*;
+
+import java.util.*;
+
+/**
+ * Control flow graph of an OLLIR method, with one node for each basic block.
+ * <p>
+ * Passes change the instructions of the blocks and the graph itself (e.g., splitting edges), and then call
+ * {@link #commit()} to write the blocks back to the method. The order of the blocks is the order of the code.
+ */
+public class ControlFlowGraph {
+
+    private final Method method;
+    private final List<BasicBlock> blocks;
+    private int labelCounter;
+
+    public ControlFlowGraph(Method method) {
+        this.method = method;
+        this.blocks = new ArrayList<>();
+        this.labelCounter = 0;
+
+        build();
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * @return the blocks in the order of the code, starting with the entry block
+     */
+    public List<BasicBlock> getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * @return the first block, which has no predecessors and may be empty
+     */
+    public BasicBlock getEntry() {
+        return blocks.getFirst();
+    }
+
+    private void build() {
+        var instructions = method.getInstructions();
+
+        // Labels of each instruction (the inverse map of the method is cached, so it is not used)
+        var labels = new HashMap<Instruction, List<String>>();
+        for (var entry : method.getLabels().entrySet())
+            labels.computeIfAbsent(entry.getValue(), inst -> new ArrayList<>()).add(entry.getKey());
+
+        var labelBlocks = new HashMap<String, BasicBlock>();
+
+        BasicBlock current = null;
+        for (var inst : instructions) {
+            var instLabels = labels.getOrDefault(inst, List.of());
+
+            // Leaders: the first instruction, jump targets and instructions that follow a jump or return
+            if (current == null || !instLabels.isEmpty() || InstructionUtils.isTerminator(current.getLast())) {
+                current = new BasicBlock(blocks.size());
+                blocks.add(current);
+            }
+
+            // Sorted, so that the code produced does not depend on the order of the map
+            var sortedLabels = new ArrayList<>(instLabels);
+            Collections.sort(sortedLabels);
+            for (var label : sortedLabels) {
+                current.getLabels().add(label);
+                labelBlocks.put(label, current);
+            }
+
+            current.getInstructions().add(inst);
+        }
+
+        // A jump to the first instruction (e.g., the loop of tail recursion elimination) would give the entry block
+        // predecessors, so an empty entry block is placed before it. The entry is then never a join point, and the
+        // code that runs once before the jump target has a block of its own.
+        if (blocks.isEmpty() || !blocks.getFirst().getLabels().isEmpty()) {
+            blocks.addFirst(new BasicBlock(0));
+            renumber();
+        }
+
+        for (var block : blocks) {
+            var last = block.getLast();
+            var next = block.getIndex() + 1 < blocks.size() ? blocks.get(block.getIndex() + 1) : null;
+
+            if (last instanceof GotoInstruction gotoInst) {
+                block.addSuccessor(labelBlocks.get(gotoInst.getLabel()));
+            } else if (last instanceof CondBranchInstruction branch) {
+                block.addSuccessor(labelBlocks.get(branch.getLabel()));
+                if (next != null)
+                    block.addSuccessor(next);
+            } else if (!(last instanceof ReturnInstruction) && next != null) {
+                block.addSuccessor(next);
+            }
+        }
+    }
+
+    /**
+     * Splits the edge from a block to one of its successors, by placing a new empty block in the middle.
+     * Instructions added to the new block only run when that edge is taken.
+     *
+     * @param pred the source of the edge
+     * @param slot the position of the target of the edge in the successors of the source
+     * @return the new block
+     */
+    public BasicBlock splitEdge(BasicBlock pred, int slot) {
+        var succ = pred.getSuccessors().get(slot);
+        var last = pred.getLast();
+        var block = new BasicBlock(0);
+
+        if (last instanceof GotoInstruction || (last instanceof CondBranchInstruction && slot == 0)) {
+            // Jump to the new block, which is placed where no block falls through into it and jumps to the target
+            var label = newLabel();
+            block.getLabels().add(label);
+            if (last instanceof GotoInstruction gotoInst)
+                gotoInst.setLabel(label);
+            else
+                ((CondBranchInstruction) last).setLabel(label);
+
+            block.getInstructions().add(new GotoInstruction(succ.getLabels().getFirst()));
+            blocks.add(lastNonFallthrough() + 1, block);
+        } else {
+            // The new block falls through into the target
+            blocks.add(blocks.indexOf(pred) + 1, block);
+        }
+
+        renumber();
+
+        pred.getSuccessors().set(slot, block);
+        block.getPredecessors().add(pred);
+        block.getSuccessors().add(succ);
+        succ.getPredecessors().set(succ.getPredecessors().indexOf(pred), block);
+
+        return block;
+    }
+
+    /**
+     * Adds an instruction to the end of a block, before the jump that ends it.
+     */
+    public void insertAtEnd(BasicBlock block, Instruction inst) {
+        var instructions = block.getInstructions();
+
+        if (!instructions.isEmpty() && InstructionUtils.isTerminator(block.getLast()))
+            instructions.add(instructions.size() - 1, inst);
+        else
+            instructions.add(inst);
+    }
+
+    /**
+     * @return a label that is not used in the method
+     */
+    public String newLabel() {
+        String label;
+        do {
+            label = "cfg" + labelCounter++;
+        } while (method.getLabels().containsKey(label) || hasLabel(label));
+
+        return label;
+    }
+
+    private boolean hasLabel(String label) {
+        return blocks.stream().anyMatch(block -> block.getLabels().contains(label));
+    }
+
+    private int lastNonFallthrough() {
+        for (int i = blocks.size() - 1; i >= 0; i--) {
+            var last = blocks.get(i).getLast();
+            if (last instanceof GotoInstruction || last instanceof ReturnInstruction)
+                return i;
+        }
+
+        throw new IllegalStateException("Method '" + method.getMethodName() + "' has no block that ends with a jump");
+    }
+
+    private void renumber() {
+        for (int i = 0; i < blocks.size(); i++)
+            blocks.get(i).setIndex(i);
+    }
+
+    /**
+     * Writes the blocks back to the method, in order, and rebuilds the CFG of the instructions.
+     */
+    public void commit() {
+        var instructions = method.getInstructions();
+        var labels = method.getLabels();
+
+        // The CFG of the instructions is only built on request, the begin and end nodes can only be read after that
+        boolean hasCfg = !instructions.isEmpty() && !instructions.getFirst().getPredecessors().isEmpty();
+
+        instructions.clear();
+        labels.clear();
+
+        // The labels of empty blocks belong to the next instruction
+        var pendingLabels = new ArrayList<String>();
+        for (var block : blocks) {
+            pendingLabels.addAll(block.getLabels());
+            if (block.getInstructions().isEmpty())
+                continue;
+
+            for (var label : pendingLabels)
+                labels.put(label, block.getInstructions().getFirst());
+            pendingLabels.clear();
+
+            instructions.addAll(block.getInstructions());
+        }
+
+        if (!pendingLabels.isEmpty())
+            throw new IllegalStateException("Labels " + pendingLabels + " of method '" + method.getMethodName()
+                    + "' do not have an instruction");
+
+        // Edges of the previous CFG are not removed by buildCFG()
+        if (hasCfg) {
+            method.getBeginNode().getSuccessors().clear();
+            method.getEndNode().getPredecessors().clear();
+        }
+        for (var inst : instructions) {
+            inst.getSuccessors().clear();
+            inst.getPredecessors().clear();
+        }
+
+        method.buildCFG();
+    }
+}
@@ -0,0 +1,123 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.specs.comp.ollir.ArrayOperand;
+import org.specs.comp.ollir.Operand;
+import org.specs.comp.ollir.inst.AssignInstruction;
+import org.specs.comp.ollir.inst.Instruction;
+import org.specs.comp.ollir.inst.SingleOpInstruction;
+
+import java.util.*;
+
+/**
+ * Replaces the uses of a temporary x by y when x is assigned by the copy "x := y", so the copies (and the
+ * temporaries they assign) become dead and are removed by {@link DeadCodeElimination}.
+ * <p>
+ * The pass works on the {@link SsaForm} of the method. Each version is assigned once and its assignment dominates
+ * its uses, so every use of x reads the value of the copy, and the version y it copies is the one the use would
+ * read. No dataflow analysis is needed: the uses of each copy are replaced directly, in the order of the dominator
+ * tree, so chains of copies ("a := b; c := a") end up reading the first source.
+ * <p>
+ * Only copies to temporaries are propagated. Assignments to the variables of the source code are kept by the dead
+ * code elimination, so replacing the uses of such a copy would make both variables live at the same time, and
+ * need more registers. For the same reason, a copy is kept when x interferes with another version of the variable of
+ * y (e.g., y is assigned again while x is live): reading y there would keep two versions of it live, and leaving SSA
+ * form would need another variable and copies to hold them.
+ */
+public class CopyPropagation {
+
+    private final SsaForm ssa;
+
+    public CopyPropagation(SsaForm ssa) {
+        this.ssa = ssa;
+    }
+
+    /**
+     * @return the number of uses replaced
+     */
+    public int apply() {
+        var blocks = ssa.getDominators().getReversePostorder();
+        var interferences = ssa.getInterferences();
+
+        // Uses of each version, in the instructions and in the phi functions
+        var uses = new HashMap<String, List<Operand>>();
+        var phiUses = new HashMap<String, List<Map.Entry<SsaForm.Phi, BasicBlock>>>();
+        for (var block : blocks) {
+            for (var phi : ssa.getPhis(block))
+                for (var source : phi.getSources().entrySet())
+                    phiUses.computeIfAbsent(source.getValue(), key -> new ArrayList<>())
+                            .add(Map.entry(phi, source.getKey()));
+
+            for (var inst : block.getInstructions())
+                for (var use : InstructionUtils.getUses(inst))
+                    uses.computeIfAbsent(use.getName(), key -> new ArrayList<>()).add(use);
+        }
+
+        int replaced = 0;
+        for (var block : blocks) {
+            for (var inst : block.getInstructions()) {
+                var copy = getCopy(inst);
+                if (copy == null)
+                    continue;
+
+                var dest = copy.getKey();
+                var source = copy.getValue();
+                var destInterferences = interferences.getOrDefault(dest, Set.of());
+                if (interferesWithVersion(destInterferences, source))
+                    continue;
+
+                for (var use : uses.getOrDefault(dest, List.of())) {
+                    use.setName(source);
+                    uses.computeIfAbsent(source, key -> new ArrayList<>()).add(use);
+                    replaced++;
+                }
+                for (var phiUse : phiUses.getOrDefault(dest, List.of())) {
+                    phiUse.getKey().getSources().put(phiUse.getValue(), source);
+                    phiUses.computeIfAbsent(source, key -> new ArrayList<>()).add(phiUse);
+                    replaced++;
+                }
+                uses.remove(dest);
+                phiUses.remove(dest);
+
+                // The source is now live wherever the destination was
+                for (var other : destInterferences) {
+                    if (other.equals(source))
+                        continue;
+                    interferences.computeIfAbsent(source, key -> new HashSet<>()).add(other);
+                    interferences.computeIfAbsent(other, key -> new HashSet<>()).add(source);
+                }
+            }
+        }
+
+        return replaced;
+    }
+
+    private boolean interferesWithVersion(Set<String> interferences, String source) {
+        var variable = ssa.getVariable(source);
+        if (variable == null)
+            return false;
+
+        for (var other : interferences)
+            if (!other.equals(source) && variable.equals(ssa.getVariable(other)))
+                return true;
+
+        return false;
+    }
+
+    /**
+     * @return the destination and the source of the copy done by the instruction, if it is an assignment of a
+     * variable to a temporary
+     */
+    private Map.Entry<String, String> getCopy(Instruction inst) {
+        var def = InstructionUtils.getDef(inst);
+        var variable = def == null ? null : ssa.getVariable(def.getName());
+        if (variable == null || !OptUtils.isTemporary(variable)
+                || !(((AssignInstruction) inst).getRhs() instanceof SingleOpInstruction single))
+            return null;
+
+        if (!(single.getSingleOperand() instanceof Operand source) || source instanceof ArrayOperand
+                || source.isLiteral() || source.getName().equals(def.getName()))
+            return null;
+
+        return Map.entry(def.getName(), source.getName());
+    }
+}
@@ -0,0 +1,177 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.specs.comp.ollir.*;
+import org.specs.comp.ollir.inst.*;
+
+import java.util.*;
+
+/**
+ * Removes code that has no effect on the result of an OLLIR method:
+ * <ul>
+ *     <li>conditional branches on a constant become a goto or are removed;</li>
+ *     <li>blocks that cannot be reached from the entry of the method;</li>
+ *     <li>assignments without side effects to temporaries that are not live after them;</li>
+ *     <li>calls whose result is not used, to methods that change nothing, always return and cannot throw (see
+ *     {@link SideEffects}).</li>
+ * </ul>
+ * Removing an assignment can make the temporaries it reads dead, so the liveness analysis is repeated until nothing
+ * else is removed. Temporaries that are no longer used are removed from the var table, so they do not take a
+ * register. Assignments to the variables of the source code are kept, even when dead.
+ */
+public class DeadCodeElimination {
+
+    private final Method method;
+    private final SideEffects sideEffects;
+    private int removed;
+
+    public DeadCodeElimination(Method method, SideEffects sideEffects) {
+        this.method = method;
+        this.sideEffects = sideEffects;
+        this.removed = 0;
+    }
+
+    /**
+     * @return the number of instructions removed
+     */
+    public int apply() {
+        boolean changed;
+        do {
+            var cfg = new ControlFlowGraph(method);
+
+            // The edges of the graph are computed from the code, so the graph is built again after folding
+            if (foldConstantBranches(cfg)) {
+                cfg.commit();
+                cfg = new ControlFlowGraph(method);
+            }
+
+            removeUnreachableBlocks(cfg);
+            cfg.commit();
+
+            var liveness = new LivenessAnalysis(method);
+            liveness.analyze();
+            changed = removeDeadAssignments(cfg, liveness.getOutMap());
+            cfg.commit();
+        } while (changed);
+
+        removeUnusedVariables();
+
+        return removed;
+    }
+
+    private boolean foldConstantBranches(ControlFlowGraph cfg) {
+        boolean changed = false;
+
+        for (var block : cfg.getBlocks()) {
+            if (!(block.getLast() instanceof CondBranchInstruction branch))
+                continue;
+
+            var condition = evaluate(branch.getCondition());
+            if (condition == null)
+                continue;
+
+            var instructions = block.getInstructions();
+            instructions.removeLast();
+            if (condition)
+                instructions.add(new GotoInstruction(branch.getLabel()));
+            else
+                removed++;
+
+            changed = true;
+        }
+
+        return changed;
+    }
+
+    /**
+     * @return the value of a branch condition with constant operands, or null if it is not constant
+     */
+    private Boolean evaluate(Instruction condition) {
+        if (condition instanceof SingleOpInstruction single && single.getSingleOperand() instanceof LiteralElement literal)
+            return !literal.getLiteral().equals("0");
+
+        if (condition instanceof UnaryOpInstruction unary && unary.getOperation().getOpType() == OperationType.NOTB
+                && unary.getOperand() instanceof LiteralElement literal)
+            return literal.getLiteral().equals("0");
+
+        return null;
+    }
+
+    private void removeUnreachableBlocks(ControlFlowGraph cfg) {
+        var reachable = new HashSet<BasicBlock>();
+        var worklist = new ArrayDeque<BasicBlock>();
+        reachable.add(cfg.getEntry());
+        worklist.add(cfg.getEntry());
+
+        while (!worklist.isEmpty()) {
+            var block = worklist.poll();
+            for (var succ : block.getSuccessors())
+                if (reachable.add(succ))
+                    worklist.add(succ);
+        }
+
+        for (var block : cfg.getBlocks())
+            if (!reachable.contains(block))
+                removed += block.getInstructions().size();
+
+        cfg.getBlocks().removeIf(block -> !reachable.contains(block));
+    }
+
+    private boolean removeDeadAssignments(ControlFlowGraph cfg, Map<Instruction, Set<String>> outMap) {
+        boolean changed = false;
+
+        for (var block : cfg.getBlocks()) {
+            var iterator = block.getInstructions().iterator();
+            while (iterator.hasNext()) {
+                var inst = iterator.next();
+                var def = InstructionUtils.getDef(inst);
+
+                if (inst instanceof CallInstruction call && isRemovable(call)) {
+                    iterator.remove();
+                    removed++;
+                    changed = true;
+                    continue;
+                }
+
+                if (def == null || !OptUtils.isTemporary(def.getName()) || outMap.get(inst).contains(def.getName())
+                        || !isRemovable(((AssignInstruction) inst).getRhs()))
+                    continue;
+
+                iterator.remove();
+                removed++;
+                changed = true;
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * Calls with side effects, allocations and instructions that can throw an exception (array accesses, divisions
+     * and array lengths) must stay, even if their result is not used.
+     */
+    private boolean isRemovable(Instruction rhs) {
+        return switch (rhs) {
+            case SingleOpInstruction single -> !(single.getSingleOperand() instanceof ArrayOperand);
+            case BinaryOpInstruction binary -> binary.getOperation().getOpType() != OperationType.DIV
+                    || (binary.getRightOperand() instanceof LiteralElement literal && !literal.getLiteral().equals("0"));
+            case UnaryOpInstruction unary -> true;
+            case GetFieldInstruction getField -> true;
+            case InvokeVirtualInstruction call -> SideEffects.isRemovable(sideEffects.getEffects(method, call));
+            case InvokeStaticInstruction call -> SideEffects.isRemovable(sideEffects.getEffects(method, call));
+            default -> false;
+        };
+    }
+
+    private void removeUnusedVariables() {
+        var used = new HashSet<String>();
+        for (var inst : method.getInstructions()) {
+            InstructionUtils.getUses(inst).forEach(use -> used.add(use.getName()));
+            var def = InstructionUtils.getDef(inst);
+            if (def != null)
+                used.add(def.getName());
+        }
+
+        method.getVarTable().entrySet().removeIf(entry ->
+                OptUtils.isTemporary(entry.getKey()) && !used.contains(entry.getKey()));
+    }
+}
@@ -0,0 +1,164 @@
+package pt.up.fe.comp2025.optimization;
+
+import java.util.*;
+
+/**
+ * Dominator tree and dominance frontiers of a {@link ControlFlowGraph}, computed with the iterative algorithm by
+ * Cooper, Harvey and Kennedy. Blocks that cannot be reached from the entry are not part of the tree.
+ */
+public class DominatorTree {
+
+    private final BasicBlock entry;
+    private final List<BasicBlock> reversePostorder;
+    private final Map<BasicBlock, Integer> rpoNumbers;
+    private final Map<BasicBlock, BasicBlock> idoms;
+    private final Map<BasicBlock, List<BasicBlock>> children;
+    private final Map<BasicBlock, Set<BasicBlock>> frontiers;
+
+    public DominatorTree(ControlFlowGraph cfg) {
+        this.entry = cfg.getEntry();
+
+        // The dominance frontiers below only see joins of real edges, the edge into the method is not one of them
+        if (!entry.getPredecessors().isEmpty())
+            throw new IllegalArgumentException("The entry block of method '" + cfg.getMethod().getMethodName()
+                    + "' is the target of a jump");
+
+        this.reversePostorder = new ArrayList<>();
+        this.rpoNumbers = new HashMap<>();
+        this.idoms = new HashMap<>();
+        this.children = new HashMap<>();
+        this.frontiers = new HashMap<>();
+
+        computeReversePostorder();
+        computeIdoms();
+        computeFrontiers();
+    }
+
+    /**
+     * @return the reachable blocks, in reverse postorder
+     */
+    public List<BasicBlock> getReversePostorder() {
+        return reversePostorder;
+    }
+
+    public boolean isReachable(BasicBlock block) {
+        return rpoNumbers.containsKey(block);
+    }
+
+    /**
+     * @return the immediate dominator of the block, or null for the entry block
+     */
+    public BasicBlock getIdom(BasicBlock block) {
+        return block == entry ? null : idoms.get(block);
+    }
+
+    /**
+     * @return the blocks immediately dominated by the block
+     */
+    public List<BasicBlock> getChildren(BasicBlock block) {
+        return children.getOrDefault(block, List.of());
+    }
+
+    /**
+     * @return the blocks where the dominance of the block ends
+     */
+    public Set<BasicBlock> getFrontier(BasicBlock block) {
+        return frontiers.getOrDefault(block, Set.of());
+    }
+
+    /**
+     * @return true if every path from the entry to b goes through a
+     */
+    public boolean dominates(BasicBlock a, BasicBlock b) {
+        for (var block = b; block != null; block = getIdom(block))
+            if (block == a)
+                return true;
+
+        return false;
+    }
+
+    private void computeReversePostorder() {
+        var postorder = new ArrayList<BasicBlock>();
+        var visited = new HashSet<BasicBlock>();
+
+        // Iterative DFS, each stack entry keeps the position of the next successor to visit
+        var stack = new ArrayDeque<Map.Entry<BasicBlock, Integer>>();
+        visited.add(entry);
+        stack.push(new AbstractMap.SimpleEntry<>(entry, 0));
+
+        while (!stack.isEmpty()) {
+            var top = stack.peek();
+            var block = top.getKey();
+            int next = top.getValue();
+
+            if (next < block.getSuccessors().size()) {
+                top.setValue(next + 1);
+                var succ = block.getSuccessors().get(next);
+                if (visited.add(succ))
+                    stack.push(new AbstractMap.SimpleEntry<>(succ, 0));
+            } else {
+                stack.pop();
+                postorder.add(block);
+            }
+        }
+
+        for (int i = postorder.size() - 1; i >= 0; i--) {
+            rpoNumbers.put(postorder.get(i), reversePostorder.size());
+            reversePostorder.add(postorder.get(i));
+        }
+    }
+
+    private void computeIdoms() {
+        idoms.put(entry, entry);
+
+        boolean changed;
+        do {
+            changed = false;
+
+            for (var block : reversePostorder) {
+                if (block == entry)
+                    continue;
+
+                BasicBlock newIdom = null;
+                for (var pred : block.getPredecessors()) {
+                    if (!idoms.containsKey(pred))
+                        continue;
+                    newIdom = newIdom == null ? pred : intersect(pred, newIdom);
+                }
+
+                if (idoms.get(block) != newIdom) {
+                    idoms.put(block, newIdom);
+                    changed = true;
+                }
+            }
+        } while (changed);
+
+        for (var block : reversePostorder)
+            if (block != entry)
+                children.computeIfAbsent(idoms.get(block), key -> new ArrayList<>()).add(block);
+    }
+
+    private BasicBlock intersect(BasicBlock a, BasicBlock b) {
+        while (a != b) {
+            while (rpoNumbers.get(a) > rpoNumbers.get(b))
+                a = idoms.get(a);
+            while (rpoNumbers.get(b) > rpoNumbers.get(a))
+                b = idoms.get(b);
+        }
+
+        return a;
+    }
+
+    private void computeFrontiers() {
+        for (var block : reversePostorder) {
+            var preds = block.getPredecessors().stream().filter(this::isReachable).distinct().toList();
+            if (preds.size() < 2)
+                continue;
+
+            for (var pred : preds) {
+                for (var runner = pred; runner != idoms.get(block); runner = idoms.get(runner))
+                    frontiers.computeIfAbsent(runner, key -> new LinkedHashSet<>()).add(block);
+            }
+        }
+    }
+}
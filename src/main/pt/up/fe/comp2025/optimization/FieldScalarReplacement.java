@@ -0,0 +1,220 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.specs.comp.ollir.*;
+import org.specs.comp.ollir.inst.*;
+import org.specs.comp.ollir.type.Type;
+
+import java.util.*;
+
+/**
+ * Keeps the fields of "this" that a loop reads or writes in temporaries while the loop runs, so each access is a
+ * local variable instead of a getfield or putfield.
+ * <p>
+ * The field is loaded into the temporary in the preheader of the loop, and stored back on every exit if the loop
+ * writes it. Calls in the loop that may read fields (see {@link SideEffects}) get the value stored before them, and
+ * calls that may write fields get it loaded again after them. A field is only replaced when that leaves fewer field
+ * accesses in the loop than there were.
+ * <p>
+ * Accesses to the field through other objects, which can be "this", keep the field in memory. An exception thrown
+ * in the loop can leave the field with an old value, but the language has no way to catch it.
+ */
+public class FieldScalarReplacement {
+
+    private final Method method;
+    private final SideEffects sideEffects;
+
+    // Loads and stores added by this pass, which are not counted as accesses of the loops they end up in
+    private final Set<Instruction> added;
+
+    public FieldScalarReplacement(Method method, SideEffects sideEffects) {
+        this.method = method;
+        this.sideEffects = sideEffects;
+        this.added = Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    /**
+     * @return the number of field accesses replaced by temporaries
+     */
+    public int apply() {
+        int replaced = 0;
+
+        // Replacing a field changes the blocks, so the loops are found again until no loop changes
+        boolean changed;
+        do {
+            changed = false;
+
+            var cfg = new ControlFlowGraph(method);
+            var dominators = new DominatorTree(cfg);
+
+            // Outer loops first, so the fields of inner loops are already replaced by the same temporary
+            var loops = NaturalLoop.find(cfg, dominators);
+            for (var loop : loops.reversed()) {
+                for (var field : getFields(loop)) {
+                    int accesses = replace(cfg, loop, field);
+                    if (accesses == 0)
+                        continue;
+
+                    replaced += accesses;
+                    changed = true;
+                    break;
+                }
+
+                if (changed)
+                    break;
+            }
+
+            if (changed)
+                cfg.commit();
+        } while (changed);
+
+        return replaced;
+    }
+
+    /**
+     * @return the names of the fields accessed in the loop, in the order of the code
+     */
+    private static Set<String> getFields(NaturalLoop loop) {
+        var fields = new LinkedHashSet<String>();
+        for (var block : loop.getBody())
+            for (var inst : block.getInstructions())
+                if (getFieldAccess(inst) instanceof FieldInstruction access)
+                    fields.add(access.getField().getName());
+
+        return fields;
+    }
+
+    /**
+     * Replaces the accesses to the field in the loop, if that pays off.
+     *
+     * @return the number of accesses replaced, 0 if the field is kept in memory
+     */
+    private int replace(ControlFlowGraph cfg, NaturalLoop loop, String fieldName) {
+        FieldInstruction example = null;
+        PutFieldInstruction exampleStore = null;
+        int accesses = 0;
+
+        // Calls that need the field stored before them, and the ones that need it loaded after them
+        var readers = new ArrayList<Instruction>();
+        var writers = new ArrayList<Instruction>();
+
+        for (var block : loop.getBody()) {
+            for (var inst : block.getInstructions()) {
+                var rhs = inst instanceof AssignInstruction assign ? assign.getRhs() : inst;
+
+                if (getFieldAccess(inst) instanceof FieldInstruction access) {
+                    if (!access.getField().getName().equals(fieldName))
+                        continue;
+                    if (!isThis(access.getObject()))
+                        return 0;
+
+                    example = access;
+                    if (access instanceof PutFieldInstruction putField)
+                        exampleStore = putField;
+                    if (!added.contains(inst))
+                        accesses++;
+                } else if (rhs instanceof CallInstruction call) {
+                    var effects = sideEffects.getEffects(method, call);
+                    if (effects.contains(SideEffects.Effect.READS_FIELDS))
+                        readers.add(inst);
+                    if (effects.contains(SideEffects.Effect.WRITES_FIELDS))
+                        writers.add(inst);
+                }
+            }
+        }
+
+        boolean writes = exampleStore != null;
+        int extra = (writes ? readers.size() : 0) + writers.size();
+        if (example == null || accesses <= extra)
+            return 0;
+
+        var preheader = loop.getPreheader(cfg);
+        if (preheader == null)
+            return 0;
+
+        // The type of a putfield is the type of the instruction (void), not the type of the field
+        var type = example.getField().getType();
+        var storeType = writes ? exampleStore.getFieldType() : null;
+        var temp = OptUtils.newTemporary(method, type);
+        var object = (Operand) InstructionUtils.copy(example.getObject());
+        var field = (Operand) InstructionUtils.copy(example.getField());
+
+        // The exits are found before the loads and stores are added, since the stores split edges
+        var exitEdges = new ArrayList<Map.Entry<BasicBlock, BasicBlock>>();
+        for (var block : loop.getExitingBlocks())
+            for (var succ : block.getSuccessors())
+                if (!loop.contains(succ))
+                    exitEdges.add(Map.entry(block, succ));
+
+        cfg.insertAtEnd(preheader, markAdded(newLoad(object, field, temp, type)));
+
+        for (var block : loop.getBody()) {
+            var instructions = block.getInstructions();
+
+            for (int i = 0; i < instructions.size(); i++) {
+                var inst = instructions.get(i);
+
+                if (getFieldAccess(inst) instanceof FieldInstruction access
+                        && access.getField().getName().equals(fieldName)) {
+                    var copy = switch (access) {
+                        case PutFieldInstruction putField -> new AssignInstruction(InstructionUtils.copy(temp), type,
+                                new SingleOpInstruction(InstructionUtils.copy(putField.getValue())));
+                        default -> new AssignInstruction(((AssignInstruction) inst).getDest(), type,
+                                new SingleOpInstruction(InstructionUtils.copy(temp)));
+                    };
+                    instructions.set(i, copy);
+                    continue;
+                }
+
+                if (writes && readers.contains(inst)) {
+                    instructions.add(i, markAdded(newStore(object, field, temp, storeType)));
+                    i++;
+                }
+                if (writers.contains(inst)) {
+                    instructions.add(i + 1, markAdded(newLoad(object, field, temp, type)));
+                    i++;
+                }
+            }
+        }
+
+        // Returns are never in the loop, the blocks that end with them are exits too
+        if (writes) {
+            for (var edge : exitEdges) {
+                var exit = cfg.splitEdge(edge.getKey(), edge.getKey().getSuccessors().indexOf(edge.getValue()));
+                cfg.insertAtEnd(exit, markAdded(newStore(object, field, temp, storeType)));
+            }
+        }
+
+        return accesses;
+    }
+
+    private Instruction markAdded(Instruction inst) {
+        added.add(inst);
+        return inst;
+    }
+
+    private static Instruction newLoad(Operand object, Operand field, Operand temp, Type type) {
+        return new AssignInstruction(InstructionUtils.copy(temp), type, new GetFieldInstruction(
+                (Operand) InstructionUtils.copy(object), (Operand) InstructionUtils.copy(field), type));
+    }
+
+    private static Instruction newStore(Operand object, Operand field, Operand temp, Type type) {
+        return new PutFieldInstruction((Operand) InstructionUtils.copy(object), (Operand) InstructionUtils.copy(field),
+                InstructionUtils.copy(temp), type);
+    }
+
+    /**
+     * @return the getfield assigned by the instruction or the putfield it is, or null
+     */
+    private static FieldInstruction getFieldAccess(Instruction inst) {
+        if (inst instanceof PutFieldInstruction putField)
+            return putField;
+        if (inst instanceof AssignInstruction assign && assign.getRhs() instanceof GetFieldInstruction getField)
+            return getField;
+
+        return null;
+    }
+
+    private static boolean isThis(Element object) {
+        return object instanceof Operand operand && operand.getName().equals("this");
+    }
+}
@@ -0,0 +1,167 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.specs.comp.ollir.*;
+import org.specs.comp.ollir.inst.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Utility methods to find the variables read and written by OLLIR instructions, and to copy instructions.
+ */
+public class InstructionUtils {
+
+    private InstructionUtils() {
+    }
+
+    /**
+     * @return the operand written by the instruction, or null if it does not write a variable (stores to array
+     * elements write the array, which is a use)
+     */
+    public static Operand getDef(Instruction inst) {
+        if (inst instanceof AssignInstruction assign
+                && assign.getDest() instanceof Operand dest
+                && !(dest instanceof ArrayOperand))
+            return dest;
+
+        return null;
+    }
+
+    /**
+     * Every occurrence of a variable has its own operand, so the operands returned can be renamed in place.
+     *
+     * @return the operands read by the instruction, in evaluation order. Literals, class names and the field names
+     * of field instructions are not included.
+     */
+    public static List<Operand> getUses(Instruction inst) {
+        var uses = new ArrayList<Operand>();
+        addUses(inst, uses);
+        return uses;
+    }
+
+    private static void addUses(Instruction inst, List<Operand> uses) {
+        switch (inst) {
+            case AssignInstruction assign -> {
+                addUses(assign.getRhs(), uses);
+                if (assign.getDest() instanceof ArrayOperand dest)
+                    addUse(dest, uses);
+            }
+            case SingleOpInstruction single -> addUse(single.getSingleOperand(), uses);
+            case BinaryOpInstruction binary -> {
+                addUse(binary.getLeftOperand(), uses);
+                addUse(binary.getRightOperand(), uses);
+            }
+            case UnaryOpInstruction unary -> addUse(unary.getOperand(), uses);
+            case CondBranchInstruction branch -> addUses(branch.getCondition(), uses);
+            case ReturnInstruction ret -> ret.getOperand().ifPresent(operand -> addUse(operand, uses));
+            case CallInstruction call -> {
+                // The caller of static calls and object creations is a class name
+                if (!(call instanceof InvokeStaticInstruction) && !(call instanceof NewInstruction))
+                    addUse(call.getCaller(), uses);
+                for (var arg : call.getArguments())
+                    addUse(arg, uses);
+            }
+            case FieldInstruction field -> {
+                // The second operand is the name of the field
+                var operands = field.getOperands();
+                addUse(operands.get(0), uses);
+                for (int i = 2; i < operands.size(); i++)
+                    addUse(operands.get(i), uses);
+            }
+            default -> {
+            }
+        }
+    }
+
+    private static void addUse(Element element, List<Operand> uses) {
+        if (!(element instanceof Operand operand) || operand.isLiteral())
+            return;
+
+        uses.add(operand);
+
+        if (operand instanceof ArrayOperand array)
+            for (var index : array.getIndexOperands())
+                addUse(index, uses);
+    }
+
+    /**
+     * @return true if the instruction ends a basic block (branches, gotos and returns)
+     */
+    public static boolean isTerminator(Instruction inst) {
+        return inst instanceof CondBranchInstruction || inst instanceof GotoInstruction
+                || inst instanceof ReturnInstruction;
+    }
+
+    /**
+     * Copies an instruction and all its operands, so the copy can be changed without changing the original.
+     * Labels are not part of the instruction, and the copy has no edges in the CFG.
+     */
+    public static Instruction copy(Instruction inst) {
+        return switch (inst) {
+            case AssignInstruction assign ->
+                    new AssignInstruction(copy(assign.getDest()), assign.getTypeOfAssign(), copy(assign.getRhs()));
+            case SingleOpInstruction single -> new SingleOpInstruction(copy(single.getSingleOperand()));
+            case BinaryOpInstruction binary -> new BinaryOpInstruction(copy(binary.getLeftOperand()),
+                    copy(binary.getOperation()), copy(binary.getRightOperand()));
+            case UnaryOpInstruction unary -> new UnaryOpInstruction(copy(unary.getOperation()), copy(unary.getOperand()));
+            case GotoInstruction gotoInst -> new GotoInstruction(gotoInst.getLabel());
+            case SingleOpCondInstruction branch -> {
+                var copy = new SingleOpCondInstruction((SingleOpInstruction) copy(branch.getCondition()));
+                copy.setLabel(branch.getLabel());
+                yield copy;
+            }
+            case OpCondInstruction branch -> {
+                var copy = new OpCondInstruction((OpInstruction) copy(branch.getCondition()));
+                copy.setLabel(branch.getLabel());
+                yield copy;
+            }
+            case ReturnInstruction ret -> {
+                var copy = ret.getOperand().map(operand -> new ReturnInstruction(copy(operand)))
+                        .orElseGet(ReturnInstruction::new);
+                copy.setReturnType(ret.getReturnType());
+                yield copy;
+            }
+            case GetFieldInstruction getField -> new GetFieldInstruction((Operand) copy(getField.getObject()),
+                    (Operand) copy(getField.getField()), getField.getFieldType());
+            case PutFieldInstruction putField -> new PutFieldInstruction((Operand) copy(putField.getObject()),
+                    (Operand) copy(putField.getField()), copy(putField.getValue()), putField.getFieldType());
+            case InvokeVirtualInstruction call -> new InvokeVirtualInstruction(copy(call.getCaller()),
+                    copy(call.getMethodName()), copyAll(call.getArguments()), call.getReturnType(), call.isIsolated());
+            case InvokeStaticInstruction call -> new InvokeStaticInstruction(copy(call.getCaller()),
+                    copy(call.getMethodName()), copyAll(call.getArguments()), call.getReturnType(), call.isIsolated());
+            case InvokeSpecialInstruction call -> new InvokeSpecialInstruction(copy(call.getCaller()),
+                    copy(call.getMethodName()), call.getSuperClass().orElse(null), copyAll(call.getArguments()),
+                    call.getReturnType(), call.isIsolated());
+            case NewInstruction call -> new NewInstruction(copy(call.getCaller()), copyAll(call.getArguments()),
+                    call.getReturnType(), call.isIsolated());
+            case ArrayLengthInstruction call -> new ArrayLengthInstruction(copy(call.getCaller()), call.getReturnType());
+            default -> throw new IllegalArgumentException("Cannot copy instruction " + inst.getInstType());
+        };
+    }
+
+    public static Element copy(Element element) {
+        return switch (element) {
+            case LiteralElement literal -> new LiteralElement(literal.getLiteral(), literal.getType());
+            case ArrayOperand array ->
+                    new ArrayOperand(array.getName(), array.getType(), copyAll(array.getIndexOperands()));
+            case Operand operand -> {
+                var copy = new Operand(operand.getName(), operand.getType());
+                if (operand.isParameter())
+                    copy.setParamId(operand.getParamId());
+                yield copy;
+            }
+            default -> throw new IllegalArgumentException("Cannot copy element " + element);
+        };
+    }
+
+    private static Operation copy(Operation operation) {
+        return new Operation(operation.getOpType(), operation.getTypeInfo());
+    }
+
+    private static ArrayList<Element> copyAll(List<Element> elements) {
+        var copies = new ArrayList<Element>();
+        for (var element : elements)
+            copies.add(copy(element));
+        return copies;
+    }
+}
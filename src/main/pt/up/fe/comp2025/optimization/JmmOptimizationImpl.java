@@ -6,21 +6,37 @@ import pt.up.fe.comp.jmm.ollir.OllirResult;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.Stage;
 import pt.up.fe.comp2025.CompilerConfig;
+import pt.up.fe.comp2025.utils.CompilerLog;
 
 import java.util.Collections;
 
+import static pt.up.fe.comp2025.ast.Kind.METHOD_DECL;
+
 public class JmmOptimizationImpl implements JmmOptimization {
 
     @Override
     public OllirResult toOllir(JmmSemanticsResult semanticsResult) {
 
-        // Create visitor that will generate the OLLIR code
-        var visitor = new OllirGeneratorVisitor(semanticsResult.getSymbolTable());
+        var log = CompilerLog.of(semanticsResult.getConfig());
+        var className = semanticsResult.getSymbolTable().getClassName();
+        log.dump(CompilerLog.Dump.AST, className, () -> semanticsResult.getRootNode().toTree());
+
+        // Create visitor that will generate the OLLIR code. With the option "-o", values assigned to local
+        // variables are computed directly in them, instead of in temporaries.
+        var optimize = CompilerConfig.getOptimize(semanticsResult.getConfig());
+        var visitor = new OllirGeneratorVisitor(semanticsResult.getSymbolTable(), optimize);
 
         // Visit the AST and obtain OLLIR code
-        var ollirCode = visitor.visit(semanticsResult.getRootNode());
+        var builder = new OllirBuilder();
+        visitor.visit(semanticsResult.getRootNode(), builder);
+        var ollirCode = builder.build();
 
-        System.out.println("\nOLLIR:\n\n" + ollirCode);
+        if (optimize)
+            visitor.getTempCounts().forEach((method, count) -> log.info(() -> "Temporaries for method `" + method
+                    + "`: " + count.temps() + " (" + (count.temps() + count.reused())
+                    + " without computing values in their destination)"));
+
+        log.dump(CompilerLog.Dump.OLLIR, className, () -> ollirCode);
 
         return new OllirResult(semanticsResult, ollirCode, Collections.emptyList());
     }
@@ -31,24 +47,27 @@ public class JmmOptimizationImpl implements JmmOptimization {
         if (!CompilerConfig.getOptimize(semanticsResult.getConfig()))
             return semanticsResult;
 
+        var log = CompilerLog.of(semanticsResult.getConfig());
         var ast = semanticsResult.getRootNode();
 
         // Print AST before optimization
         //System.out.println("\nAST BEFORE OPTIMIZATION:\n\n" + ast.toTree());
 
-        boolean changed;
-        do {
-            // Apply constant propagation
-            var propagationVisitor = new ConstantPropagationVisitor(semanticsResult.getSymbolTable());
-            propagationVisitor.visit(ast);
+        // Propagate constants in each method, in a single run of the analysis
+        var propagation = new ConstantPropagation(semanticsResult.getSymbolTable());
+        int replaced = ast.getDescendants(METHOD_DECL).stream().mapToInt(propagation::apply).sum();
 
-            // Apply constant folding
-            var foldingVisitor = new ConstantFoldingVisitor();
-            foldingVisitor.visit(ast);
+        // Fold the constant expressions, bottom-up, in a single traversal
+        var foldingVisitor = new ConstantFoldingVisitor();
+        foldingVisitor.visit(ast);
 
-            changed = propagationVisitor.didChange() || foldingVisitor.didChange();
+        // Keep only the taken side of branches with constant conditions
+        var branchFoldingVisitor = new BranchFoldingVisitor();
+        branchFoldingVisitor.visit(ast);
 
-        } while (changed);
+        log.info(() -> "Constant propagation: " + replaced + " variable reference(s) replaced by constants");
+        log.info(() -> "Branch folding: " + branchFoldingVisitor.getFolded()
+                + " if/while statement(s) with constant conditions removed");
 
         // Print AST after optimization
         //System.out.println("\nAST AFTER OPTIMIZATION:\n\n" + ast.toTree());
@@ -58,6 +77,59 @@ public class JmmOptimizationImpl implements JmmOptimization {
 
     @Override
     public OllirResult optimize(OllirResult ollirResult) {
+        var log = CompilerLog.of(ollirResult.getConfig());
+
+        // Optimizations of the OLLIR code are only applied with the option "-o"
+        if (CompilerConfig.getOptimize(ollirResult.getConfig())) {
+            // Methods that are no longer recursive can be inlined
+            var callGraph = new CallGraph(ollirResult.getOllirClass());
+            for (var method : callGraph.getMethods()) {
+                int eliminated = new TailRecursionElimination(method, callGraph).apply();
+                log.info(() -> "Tail recursion elimination for method `" + method.getMethodName() + "`: "
+                        + eliminated + " call(s) replaced by jumps");
+            }
+
+            // Inlined code is optimized with the code of the caller
+            int inlined = new MethodInlining(ollirResult.getOllirClass(), log).apply();
+            log.info(() -> "Method inlining: " + inlined + " call(s) inlined");
+
+            // The optimizations below only remove effects, so the summaries stay valid
+            var sideEffects = new SideEffects(ollirResult.getOllirClass());
+            for (var method : callGraph.getMethods())
+                log.debug(() -> "Side effects of method `" + method.getMethodName() + "`: "
+                        + sideEffects.getEffects(method.getMethodName()));
+
+            for (var method : ollirResult.getOllirClass().getMethods()) {
+                // First, so the copies of the temporaries are propagated with the others
+                int promoted = new FieldScalarReplacement(method, sideEffects).apply();
+                log.info(() -> "Field scalar replacement for method `" + method.getMethodName() + "`: " + promoted
+                        + " field access(es) in loops replaced by temporaries");
+
+                int reused = new LocalValueNumbering(method, sideEffects).apply();
+                log.info(() -> "Common subexpression elimination for method `" + method.getMethodName() + "`: "
+                        + reused + " expression(s) reused");
+
+                int hoisted = new LoopInvariantCodeMotion(method, sideEffects).apply();
+                log.info(() -> "Loop-invariant code motion for method `" + method.getMethodName() + "`: "
+                        + hoisted + " instruction(s) moved out of loops");
+
+                int reduced = new StrengthReduction(method).apply();
+                log.info(() -> "Strength reduction for method `" + method.getMethodName() + "`: " + reduced
+                        + " instruction(s) replaced by cheaper ones");
+
+                var ssa = new SsaForm(method);
+                int propagated = new CopyPropagation(ssa).apply();
+                ssa.destruct();
+                log.info(() -> "Copy propagation for method `" + method.getMethodName() + "`: " + propagated
+                        + " use(s) replaced by the source of a copy, " + ssa.getNumCopies()
+                        + " copy(ies) after leaving SSA form");
+
+                int removed = new DeadCodeElimination(method, sideEffects).apply();
+                log.info(() -> "Dead code elimination for method `" + method.getMethodName() + "`: " + removed
+                        + " instruction(s) removed");
+            }
+        }
+
         // Check the option "–r=<n>" that controls the register allocation
         int configMaxRegs = CompilerConfig.getRegisterAllocation(ollirResult.getConfig());
         int maxRegs;
@@ -110,14 +182,14 @@ public class JmmOptimizationImpl implements JmmOptimization {
             }
 
             // Print register allocation details
-            System.out.println("Register allocation for method `" + method.getMethodName() + "`: "
-                    + usedRegs + " registers are needed");
+            int neededRegs = usedRegs;
+            log.info(() -> "Register allocation for method `" + method.getMethodName() + "`: "
+                    + neededRegs + " registers are needed");
             for (var entry : method.getVarTable().entrySet()) {
                 String varName = entry.getKey();
                 var descriptor = entry.getValue();
-                System.out.println("Variable " + varName + " assigned to register #" + descriptor.getVirtualReg());
+                log.debug(() -> "Variable " + varName + " assigned to register #" + descriptor.getVirtualReg());
             }
-            System.out.println();
         }
 
         return ollirResult;
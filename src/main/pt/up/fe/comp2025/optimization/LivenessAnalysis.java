@@ -22,6 +22,10 @@ public class LivenessAnalysis {
         this.method = method;
     }
 
+    public Map<Instruction, Set<String>> getInMap() {
+        return inMap;
+    }
+
     public Map<Instruction, Set<String>> getOutMap() {
         return outMap;
     }
@@ -80,11 +84,10 @@ public class LivenessAnalysis {
     private Set<String> getDef(Instruction inst) {
         Set<String> def = new HashSet<>();
 
-        if (inst instanceof AssignInstruction assign) {
-            Element lhs = assign.getDest();
-            if (lhs instanceof Operand op) {
-                def.add(op.getName());
-            }
+        // Stores to array elements do not define the array
+        Operand dest = InstructionUtils.getDef(inst);
+        if (dest != null) {
+            def.add(dest.getName());
         }
 
         return def;
@@ -93,53 +96,11 @@ public class LivenessAnalysis {
     private Set<String> getUse(Instruction inst) {
         Set<String> use = new HashSet<>();
 
-        if (inst instanceof AssignInstruction assign) {
-            Instruction rhs = assign.getRhs();
-            use.addAll(getUsedVarsFromInstruction(rhs));
-        }
-
-        if (inst instanceof CallInstruction call) {
-            for (Element arg : call.getArguments()) {
-                if (arg instanceof Operand op && !op.isLiteral()) {
-                    use.add(op.getName());
-                }
-            }
-        }
-
-        if (inst instanceof ReturnInstruction ret) {
-            ret.getOperand().ifPresent(op -> {
-                if (op instanceof Operand operand && !operand.isLiteral()) {
-                    use.add(operand.getName());
-                }
-            });
+        // Includes the operands of branch conditions, array indexes, callers and stored values
+        for (Operand op : InstructionUtils.getUses(inst)) {
+            use.add(op.getName());
         }
 
         return use;
     }
-
-    private Set<String> getUsedVarsFromInstruction(Instruction inst) {
-        Set<String> used = new HashSet<>();
-
-        if (inst instanceof BinaryOpInstruction binOp) {
-            Element left = binOp.getLeftOperand();
-            Element right = binOp.getRightOperand();
-
-            if (left instanceof Operand op && !op.isLiteral()) used.add(op.getName());
-            if (right instanceof Operand op && !op.isLiteral()) used.add(op.getName());
-
-        } else if (inst instanceof UnaryOpInstruction unOp) {
-            Element operand = unOp.getOperand();
-            if (operand instanceof Operand op && !op.isLiteral()) used.add(op.getName());
-
-        } else if (inst instanceof CallInstruction call) {
-            for (Element arg : call.getArguments()) {
-                if (arg instanceof Operand op && !op.isLiteral()) used.add(op.getName());
-            }
-        } else if (inst instanceof SingleOpInstruction single) {
-            Element operand = single.getSingleOperand();
-            if (operand instanceof Operand op && !op.isLiteral()) used.add(op.getName());
-        }
-
-        return used;
-    }
 }
@@ -0,0 +1,231 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.specs.comp.ollir.*;
+import org.specs.comp.ollir.inst.*;
+
+import java.util.*;
+
+/**
+ * Common subexpression elimination inside the basic blocks of an OLLIR method, with local value numbering.
+ * <p>
+ * Each value computed in a block gets a number, and variables are mapped to the number of the value they hold.
+ * Expressions are identified by their operation and the numbers of their operands, so an expression computed
+ * again while its value is still held by a variable becomes a copy of that variable.
+ * <p>
+ * Array elements and fields can change without their operands changing, so their reads also depend on a version of
+ * the memory: array stores create a new version of the arrays, field stores a new version of the fields, and calls
+ * a new version of what their {@link SideEffects} say they write. Calls to pure methods are expressions too, which
+ * depend on the versions of the memory they read.
+ */
+public class LocalValueNumbering {
+
+    private static final Set<OperationType> COMMUTATIVE = EnumSet.of(OperationType.ADD, OperationType.MUL,
+            OperationType.AND, OperationType.OR, OperationType.XOR, OperationType.EQ, OperationType.NEQ,
+            OperationType.ANDB, OperationType.ORB);
+
+    private final Method method;
+    private final SideEffects sideEffects;
+
+    // State of the current block
+    private final Map<String, Integer> valueNumbers;
+    private final Map<String, Integer> expressions;
+    private final Map<Integer, Set<String>> holders;
+    private int nextValueNumber;
+    private int arrayVersion;
+    private int fieldVersion;
+
+    public LocalValueNumbering(Method method, SideEffects sideEffects) {
+        this.method = method;
+        this.sideEffects = sideEffects;
+        this.valueNumbers = new HashMap<>();
+        this.expressions = new HashMap<>();
+        this.holders = new HashMap<>();
+    }
+
+    /**
+     * @return the number of expressions replaced by copies
+     */
+    public int apply() {
+        var cfg = new ControlFlowGraph(method);
+        int replaced = 0;
+
+        for (var block : cfg.getBlocks()) {
+            valueNumbers.clear();
+            expressions.clear();
+            holders.clear();
+            nextValueNumber = 0;
+            arrayVersion = 0;
+            fieldVersion = 0;
+
+            var instructions = block.getInstructions();
+            for (int i = 0; i < instructions.size(); i++) {
+                var copy = number(instructions.get(i));
+                if (copy != null) {
+                    instructions.set(i, copy);
+                    replaced++;
+                }
+            }
+        }
+
+        if (replaced > 0)
+            cfg.commit();
+
+        return replaced;
+    }
+
+    /**
+     * Numbers the value computed by the instruction and updates the memory versions.
+     *
+     * @return a copy that replaces the instruction, or null if the instruction is kept
+     */
+    private Instruction number(Instruction inst) {
+        if (!(inst instanceof AssignInstruction assign)) {
+            updateMemory(inst);
+            return null;
+        }
+
+        var rhs = assign.getRhs();
+        updateMemory(rhs);
+
+        var dest = InstructionUtils.getDef(assign);
+        if (dest == null) {
+            // Store to an array element
+            arrayVersion++;
+            return null;
+        }
+
+        // Copies share the value number of their source
+        if (rhs instanceof SingleOpInstruction single && !(single.getSingleOperand() instanceof ArrayOperand)) {
+            define(dest.getName(), valueNumber(single.getSingleOperand()));
+            return null;
+        }
+
+        var key = getKey(rhs);
+        var valueNumber = key == null ? null : expressions.get(key);
+
+        if (valueNumber != null) {
+            var holder = holders.getOrDefault(valueNumber, Set.of()).stream()
+                    .filter(name -> !name.equals(dest.getName()))
+                    .findFirst();
+
+            if (holder.isPresent()) {
+                define(dest.getName(), valueNumber);
+                return new AssignInstruction(dest, assign.getTypeOfAssign(),
+                        new SingleOpInstruction(new Operand(holder.get(), dest.getType())));
+            }
+        } else {
+            valueNumber = nextValueNumber++;
+            if (key != null)
+                expressions.put(key, valueNumber);
+        }
+
+        define(dest.getName(), valueNumber);
+        return null;
+    }
+
+    private void updateMemory(Instruction inst) {
+        if (inst instanceof CallInstruction call && !(inst instanceof ArrayLengthInstruction)) {
+            var effects = sideEffects.getEffects(method, call);
+            if (effects.contains(SideEffects.Effect.WRITES_ARRAYS))
+                arrayVersion++;
+            if (effects.contains(SideEffects.Effect.WRITES_FIELDS))
+                fieldVersion++;
+        } else if (inst instanceof PutFieldInstruction) {
+            fieldVersion++;
+        }
+    }
+
+    /**
+     * @return a key that identifies the value computed by the instruction, or null if the value cannot be reused
+     */
+    private String getKey(Instruction rhs) {
+        return switch (rhs) {
+            case BinaryOpInstruction binary -> {
+                var opType = binary.getOperation().getOpType();
+                var left = valueNumber(binary.getLeftOperand());
+                var right = valueNumber(binary.getRightOperand());
+                if (left == null || right == null)
+                    yield null;
+
+                if (COMMUTATIVE.contains(opType) && left > right)
+                    yield opType + " " + right + " " + left;
+                yield opType + " " + left + " " + right;
+            }
+            case UnaryOpInstruction unary -> {
+                var operand = valueNumber(unary.getOperand());
+                yield operand == null ? null : unary.getOperation().getOpType() + " " + operand;
+            }
+            case SingleOpInstruction single when single.getSingleOperand() instanceof ArrayOperand array
+                    && array.getIndexOperands().size() == 1 -> {
+                var index = valueNumber(array.getIndexOperands().getFirst());
+                yield index == null ? null
+                        : "load " + valueNumber(new Operand(array.getName(), array.getType())) + " " + index
+                        + " @" + arrayVersion;
+            }
+            case ArrayLengthInstruction length -> {
+                var array = valueNumber(length.getCaller());
+                yield array == null ? null : "length " + array;
+            }
+            case GetFieldInstruction getField -> "getfield " + valueNumber(getField.getObject()) + " "
+                    + getField.getField().getName() + " @" + fieldVersion;
+            case InvokeVirtualInstruction call -> getCallKey(call, valueNumber(call.getCaller()));
+            case InvokeStaticInstruction call -> getCallKey(call, ((Operand) call.getCaller()).getName());
+            default -> null;
+        };
+    }
+
+    /**
+     * @return a key for a call to a pure method, with the memory versions it reads, or null if it is not pure
+     */
+    private String getCallKey(CallInstruction call, Object caller) {
+        var effects = sideEffects.getEffects(method, call);
+        if (!SideEffects.isPure(effects) || !(call.getMethodName() instanceof LiteralElement name))
+            return null;
+
+        var key = new StringBuilder("call ").append(caller).append(" ").append(name.getLiteral());
+        for (var arg : call.getArguments()) {
+            var argNumber = valueNumber(arg);
+            if (argNumber == null)
+                return null;
+            key.append(" ").append(argNumber);
+        }
+
+        if (effects.contains(SideEffects.Effect.READS_ARRAYS))
+            key.append(" @").append(arrayVersion);
+        if (effects.contains(SideEffects.Effect.READS_FIELDS))
+            key.append(" @@").append(fieldVersion);
+
+        return key.toString();
+    }
+
+    /**
+     * @return the value number of an operand, or null if the operand is an array element
+     */
+    private Integer valueNumber(Element element) {
+        String name;
+        if (element instanceof LiteralElement literal)
+            name = literal.getLiteral() + "." + literal.getType();
+        else if (element instanceof Operand operand && !(operand instanceof ArrayOperand))
+            name = operand.getName();
+        else
+            return null;
+
+        var valueNumber = valueNumbers.get(name);
+        if (valueNumber == null) {
+            valueNumber = nextValueNumber++;
+            valueNumbers.put(name, valueNumber);
+            if (element instanceof Operand)
+                holders.computeIfAbsent(valueNumber, key -> new LinkedHashSet<>()).add(name);
+        }
+
+        return valueNumber;
+    }
+
+    private void define(String name, int valueNumber) {
+        var previous = valueNumbers.put(name, valueNumber);
+        if (previous != null)
+            holders.getOrDefault(previous, new HashSet<>()).remove(name);
+
+        holders.computeIfAbsent(valueNumber, key -> new LinkedHashSet<>()).add(name);
+    }
+}
@@ -0,0 +1,208 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.specs.comp.ollir.*;
+import org.specs.comp.ollir.inst.*;
+
+import java.util.*;
+
+/**
+ * Moves computations that give the same result in every iteration of a loop to the preheader of the loop, so they
+ * run only once.
+ * <p>
+ * An assignment "x := e" is hoisted when e has no side effects, its operands are not assigned in the loop (or only
+ * by assignments already hoisted), it is the only assignment to x in the loop, x is not live at the start of the
+ * header (so no use in the loop reads another value of x), and x is not live when leaving the loop through an exit
+ * that does not go through the assignment.
+ * <p>
+ * Array lengths and divisions can throw an exception, so they are only hoisted from blocks that run in every
+ * iteration before the loop can be left. The length of an array never changes, so it is invariant when the array
+ * variable is not assigned in the loop. Field reads are invariant when the loop does not store to the field and
+ * has no calls that write fields.
+ * <p>
+ * Calls to pure methods (see {@link SideEffects}) are hoisted as any other expression, when the loop doesn't write
+ * the fields or arrays they read. Calls that may throw or not return are only hoisted from blocks that run in every
+ * iteration, as divisions are.
+ */
+public class LoopInvariantCodeMotion {
+
+    private final Method method;
+    private final SideEffects sideEffects;
+
+    // Memory written by the loop being searched
+    private final Set<String> storedFields;
+    private boolean writesFields;
+    private boolean writesArrays;
+
+    public LoopInvariantCodeMotion(Method method, SideEffects sideEffects) {
+        this.method = method;
+        this.sideEffects = sideEffects;
+        this.storedFields = new HashSet<>();
+    }
+
+    /**
+     * @return the number of instructions moved out of loops
+     */
+    public int apply() {
+        int hoisted = 0;
+
+        // Hoisting changes the blocks, so the analyses are done again until no loop changes
+        boolean changed;
+        do {
+            changed = false;
+
+            var cfg = new ControlFlowGraph(method);
+            // Rebuilds the CFG of the instructions, used by the liveness analysis
+            cfg.commit();
+
+            var dominators = new DominatorTree(cfg);
+            var liveness = new LivenessAnalysis(method);
+            liveness.analyze();
+
+            for (var loop : NaturalLoop.find(cfg, dominators)) {
+                var invariants = findInvariants(loop, dominators, liveness.getInMap());
+                if (invariants.isEmpty())
+                    continue;
+
+                var preheader = loop.getPreheader(cfg);
+                if (preheader == null)
+                    continue;
+
+                for (var block : loop.getBody())
+                    block.getInstructions().removeAll(invariants);
+                for (var inst : invariants)
+                    cfg.insertAtEnd(preheader, inst);
+
+                hoisted += invariants.size();
+                changed = true;
+                break;
+            }
+
+            if (changed)
+                cfg.commit();
+        } while (changed);
+
+        return hoisted;
+    }
+
+    /**
+     * @return the instructions of the loop that can be hoisted, in an order where each one comes after the ones it
+     * depends on
+     */
+    private List<Instruction> findInvariants(NaturalLoop loop, DominatorTree dominators,
+                                             Map<Instruction, Set<String>> liveIn) {
+        // Number of assignments to each variable in the loop, and the memory written by the loop
+        var defCounts = new HashMap<String, Integer>();
+        storedFields.clear();
+        writesFields = false;
+        writesArrays = false;
+
+        for (var block : loop.getBody()) {
+            for (var inst : block.getInstructions()) {
+                var def = InstructionUtils.getDef(inst);
+                if (def != null)
+                    defCounts.merge(def.getName(), 1, Integer::sum);
+                else if (inst instanceof AssignInstruction)
+                    writesArrays = true;
+
+                var effect = inst instanceof AssignInstruction assign ? assign.getRhs() : inst;
+                if (effect instanceof PutFieldInstruction putField) {
+                    storedFields.add(putField.getField().getName());
+                } else if (effect instanceof CallInstruction call && !(effect instanceof ArrayLengthInstruction)) {
+                    var effects = sideEffects.getEffects(method, call);
+                    writesFields |= effects.contains(SideEffects.Effect.WRITES_FIELDS);
+                    writesArrays |= effects.contains(SideEffects.Effect.WRITES_ARRAYS);
+                }
+            }
+        }
+
+        // Blocks that run in every iteration before the loop can be left
+        var exiting = loop.getExitingBlocks();
+        var headerLiveIn = liveIn.get(loop.getHeader().getInstructions().getFirst());
+
+        var invariants = new ArrayList<Instruction>();
+        var hoisted = new HashSet<String>();
+
+        boolean found;
+        do {
+            found = false;
+
+            for (var block : loop.getBody()) {
+                boolean runsBeforeExits = exiting.stream().allMatch(exit -> dominators.dominates(block, exit));
+
+                for (var inst : block.getInstructions()) {
+                    if (invariants.contains(inst) || !(inst instanceof AssignInstruction assign))
+                        continue;
+
+                    var def = InstructionUtils.getDef(inst);
+                    if (def == null || defCounts.get(def.getName()) != 1 || headerLiveIn.contains(def.getName()))
+                        continue;
+
+                    var rhs = assign.getRhs();
+                    if (!isInvariant(rhs, defCounts, hoisted))
+                        continue;
+                    if (mayThrow(rhs) && !runsBeforeExits)
+                        continue;
+                    if (!runsBeforeExits && isLiveAtExit(def.getName(), loop, block, dominators, liveIn))
+                        continue;
+
+                    invariants.add(inst);
+                    hoisted.add(def.getName());
+                    found = true;
+                }
+            }
+        } while (found);
+
+        return invariants;
+    }
+
+    private boolean isInvariant(Instruction rhs, Map<String, Integer> defCounts, Set<String> hoisted) {
+        if (rhs instanceof GetFieldInstruction getField) {
+            if (writesFields || storedFields.contains(getField.getField().getName()))
+                return false;
+        } else if (rhs instanceof InvokeVirtualInstruction || rhs instanceof InvokeStaticInstruction) {
+            var effects = sideEffects.getEffects(method, (CallInstruction) rhs);
+            if (!SideEffects.isPure(effects)
+                    || (effects.contains(SideEffects.Effect.READS_FIELDS) && (writesFields || !storedFields.isEmpty()))
+                    || (effects.contains(SideEffects.Effect.READS_ARRAYS) && writesArrays))
+                return false;
+        } else if (rhs instanceof SingleOpInstruction single) {
+            // Array elements can be written through other variables
+            if (single.getSingleOperand() instanceof ArrayOperand)
+                return false;
+        } else if (!(rhs instanceof BinaryOpInstruction) && !(rhs instanceof UnaryOpInstruction)
+                && !(rhs instanceof ArrayLengthInstruction)) {
+            return false;
+        }
+
+        return InstructionUtils.getUses(rhs).stream()
+                .allMatch(use -> !defCounts.containsKey(use.getName()) || hoisted.contains(use.getName()));
+    }
+
+    private boolean mayThrow(Instruction rhs) {
+        if (rhs instanceof ArrayLengthInstruction)
+            return true;
+
+        if (rhs instanceof InvokeVirtualInstruction || rhs instanceof InvokeStaticInstruction) {
+            var effects = sideEffects.getEffects(method, (CallInstruction) rhs);
+            return effects.contains(SideEffects.Effect.MAY_THROW)
+                    || effects.contains(SideEffects.Effect.MAY_NOT_RETURN);
+        }
+
+        return rhs instanceof BinaryOpInstruction binary && binary.getOperation().getOpType() == OperationType.DIV
+                && !(binary.getRightOperand() instanceof LiteralElement literal && !literal.getLiteral().equals("0"));
+    }
+
+    private boolean isLiveAtExit(String name, NaturalLoop loop, BasicBlock block, DominatorTree dominators,
+                                 Map<Instruction, Set<String>> liveIn) {
+        for (var exiting : loop.getExitingBlocks()) {
+            if (dominators.dominates(block, exiting))
+                continue;
+
+            for (var succ : exiting.getSuccessors())
+                if (!loop.contains(succ) && liveIn.get(succ.getInstructions().getFirst()).contains(name))
+                    return true;
+        }
+
+        return false;
+    }
+}
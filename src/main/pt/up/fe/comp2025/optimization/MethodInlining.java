@@ -0,0 +1,248 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.specs.comp.ollir.*;
+import org.specs.comp.ollir.inst.*;
+import pt.up.fe.comp2025.utils.CompilerLog;
+
+import java.util.*;
+
+/**
+ * Replaces calls to small methods of the class by a copy of their code.
+ * <p>
+ * A call is only inlined when the method that runs is known at compile time: static and private methods, and
+ * virtual calls on an object created in the caller with "new" of this class (any other object could be of a
+ * subclass that overrides the method). Recursive methods and methods with more than {@link #MAX_SIZE} instructions
+ * are not inlined.
+ * <p>
+ * The variables of the inlined method get new names in the caller, and are added to its var table, so the register
+ * allocation sees them as any other local variable. The arguments are copied to the renamed parameters, and each
+ * return becomes an assignment of the result followed by a jump to the code after the call.
+ */
+public class MethodInlining {
+
+    private static final int MAX_SIZE = 20;
+
+    private final ClassUnit classUnit;
+    private final CallGraph callGraph;
+    private final CompilerLog log;
+    private int inlined;
+    private int nextSite;
+
+    public MethodInlining(ClassUnit classUnit, CompilerLog log) {
+        this.classUnit = classUnit;
+        this.callGraph = new CallGraph(classUnit);
+        this.log = log;
+        this.inlined = 0;
+        this.nextSite = 0;
+    }
+
+    /**
+     * @return the number of calls inlined
+     */
+    public int apply() {
+        for (var method : callGraph.getMethods())
+            inlineCalls(method);
+
+        return inlined;
+    }
+
+    private void inlineCalls(Method caller) {
+        // Calls that are not inlined are only reported once
+        var rejected = Collections.newSetFromMap(new IdentityHashMap<CallInstruction, Boolean>());
+        boolean changed = false;
+
+        // The inlined code can have calls too, so the instructions are searched again after each call inlined
+        boolean found;
+        do {
+            found = false;
+            var instructions = caller.getInstructions();
+
+            for (int i = 0; i < instructions.size() && !found; i++) {
+                var call = CallGraph.getCall(instructions.get(i));
+                if (call == null || rejected.contains(call))
+                    continue;
+
+                var callee = callGraph.getCalledMethod(call);
+                if (callee == null)
+                    continue;
+
+                var reason = getRejection(caller, call, callee);
+                log.debug(() -> "Inlining in method `" + caller.getMethodName() + "`: call to `"
+                        + callee.getMethodName() + "` " + (reason == null ? "inlined" : "not inlined (" + reason + ")"));
+
+                if (reason != null) {
+                    rejected.add(call);
+                    continue;
+                }
+
+                inline(caller, i, callee);
+                inlined++;
+                found = true;
+                changed = true;
+            }
+        } while (found);
+
+        if (changed)
+            new ControlFlowGraph(caller).commit();
+    }
+
+    /**
+     * @return why the call cannot be inlined, or null if it can
+     */
+    private String getRejection(Method caller, CallInstruction call, Method callee) {
+        if (callee == caller || callGraph.isRecursive(callee.getMethodName()))
+            return "recursive";
+
+        if (callee.getInstructions().size() > MAX_SIZE)
+            return "too large, " + callee.getInstructions().size() + " instructions";
+
+        if (!callGraph.isExactTarget(caller, call, callee))
+            return "may be overridden in a subclass";
+
+        return null;
+    }
+
+    /**
+     * Replaces the instruction at the given index of the caller, which calls the callee, by the code of the callee.
+     */
+    private void inline(Method caller, int index, Method callee) {
+        int site = nextSite++;
+        var instructions = caller.getInstructions();
+        var callInst = instructions.get(index);
+        var call = CallGraph.getCall(callInst);
+        var renames = renameVariables(caller, callee, call, site);
+
+        var code = new ArrayList<Instruction>();
+        var labels = new HashMap<Instruction, List<String>>();
+        var pendingLabels = new ArrayList<String>();
+        var endLabel = "inline" + site + "_end";
+
+        // Labels of the call go to the first instruction of the inlined code
+        caller.getLabels().forEach((label, inst) -> {
+            if (inst == callInst)
+                pendingLabels.add(label);
+        });
+
+        // Arguments
+        var params = callee.getParams();
+        for (int i = 0; i < params.size(); i++) {
+            var param = (Operand) params.get(i);
+            var type = param.getType();
+            add(new AssignInstruction(new Operand(renames.get(param.getName()), type), type,
+                    new SingleOpInstruction(InstructionUtils.copy(call.getArguments().get(i)))), code, labels,
+                    pendingLabels);
+        }
+
+        var calleeLabels = new HashMap<Instruction, List<String>>();
+        callee.getLabels().forEach((label, inst) -> calleeLabels.computeIfAbsent(inst, key -> new ArrayList<>())
+                .add(label));
+
+        var body = callee.getInstructions();
+        for (int i = 0; i < body.size(); i++) {
+            var original = body.get(i);
+            for (var label : calleeLabels.getOrDefault(original, List.of()))
+                pendingLabels.add("inline" + site + "_" + label);
+
+            var copies = new ArrayList<Instruction>();
+            var copy = InstructionUtils.copy(original);
+            rename(copy, renames);
+
+            switch (copy) {
+                case ReturnInstruction ret -> {
+                    if (ret.hasReturnValue() && callInst instanceof AssignInstruction assign)
+                        copies.add(new AssignInstruction(InstructionUtils.copy(assign.getDest()),
+                                assign.getTypeOfAssign(), new SingleOpInstruction(ret.getOperand().get())));
+                    if (i < body.size() - 1)
+                        copies.add(new GotoInstruction(endLabel));
+                }
+                case GotoInstruction gotoInst -> {
+                    gotoInst.setLabel("inline" + site + "_" + gotoInst.getLabel());
+                    copies.add(gotoInst);
+                }
+                case CondBranchInstruction branch -> {
+                    branch.setLabel("inline" + site + "_" + branch.getLabel());
+                    copies.add(branch);
+                }
+                default -> copies.add(copy);
+            }
+
+            for (var inst : copies)
+                add(inst, code, labels, pendingLabels);
+        }
+
+        // Returns jump to the instruction after the call
+        pendingLabels.add(endLabel);
+        var next = instructions.get(index + 1);
+
+        instructions.remove(index);
+        instructions.addAll(index, code);
+
+        var callerLabels = caller.getLabels();
+        callerLabels.values().removeIf(inst -> inst == callInst);
+        labels.forEach((inst, instLabels) -> instLabels.forEach(label -> callerLabels.put(label, inst)));
+        for (var label : pendingLabels)
+            callerLabels.put(label, next);
+    }
+
+    /**
+     * Adds an instruction to the inlined code, with the labels that are waiting for an instruction.
+     */
+    private void add(Instruction inst, List<Instruction> code, Map<Instruction, List<String>> labels,
+                     List<String> pendingLabels) {
+        if (!pendingLabels.isEmpty()) {
+            labels.put(inst, new ArrayList<>(pendingLabels));
+            pendingLabels.clear();
+        }
+
+        code.add(inst);
+    }
+
+    /**
+     * Adds the variables of the callee to the var table of the caller, with new names.
+     *
+     * @return the new name of each variable of the callee
+     */
+    private Map<String, String> renameVariables(Method caller, Method callee, CallInstruction call, int site) {
+        var varTable = caller.getVarTable();
+        var renames = new HashMap<String, String>();
+
+        // "this" of the callee is the object of the call
+        if (!callee.isStaticMethod())
+            renames.put("this", ((Operand) call.getCaller()).getName());
+
+        // Sorted, so that the names and registers do not depend on the order of the map
+        for (var name : new TreeSet<>(callee.getVarTable().keySet())) {
+            if (name.equals("this"))
+                continue;
+
+            var type = callee.getVarTable().get(name).getVarType();
+            if (OptUtils.isTemporary(name)) {
+                renames.put(name, OptUtils.newTemporary(caller, type).getName());
+                continue;
+            }
+
+            var newName = name + "$inline" + site;
+            while (varTable.containsKey(newName))
+                newName += "_";
+
+            int reg = varTable.values().stream().mapToInt(Descriptor::getVirtualReg).max().orElse(-1) + 1;
+            renames.put(name, newName);
+            varTable.put(newName, new Descriptor(VarScope.LOCAL, reg, type));
+        }
+
+        return renames;
+    }
+
+    private void rename(Instruction inst, Map<String, String> renames) {
+        var operands = new ArrayList<>(InstructionUtils.getUses(inst));
+        var def = InstructionUtils.getDef(inst);
+        if (def != null)
+            operands.add(def);
+
+        for (var operand : operands) {
+            var newName = renames.get(operand.getName());
+            if (newName != null)
+                operand.setName(newName);
+        }
+    }
+}
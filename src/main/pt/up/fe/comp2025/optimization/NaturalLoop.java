@@ -0,0 +1,111 @@
+package pt.up.fe.comp2025.optimization;
+
+import java.util.*;
+
+/**
+ * Natural loop of a {@link ControlFlowGraph}: a header that dominates the sources of its back edges, and the blocks
+ * that reach those back edges without going through the header. Back edges are the jumps to the "whileN" labels
+ * generated for while statements.
+ */
+public class NaturalLoop {
+
+    private final BasicBlock header;
+    private final Set<BasicBlock> body;
+
+    private NaturalLoop(BasicBlock header) {
+        this.header = header;
+        this.body = new LinkedHashSet<>();
+        this.body.add(header);
+    }
+
+    public BasicBlock getHeader() {
+        return header;
+    }
+
+    /**
+     * @return the blocks of the loop, including the header
+     */
+    public Set<BasicBlock> getBody() {
+        return body;
+    }
+
+    public boolean contains(BasicBlock block) {
+        return body.contains(block);
+    }
+
+    /**
+     * @return the blocks of the loop with a successor outside the loop
+     */
+    public List<BasicBlock> getExitingBlocks() {
+        return body.stream()
+                .filter(block -> block.getSuccessors().stream().anyMatch(succ -> !contains(succ)))
+                .toList();
+    }
+
+    /**
+     * @return the blocks outside the loop that are reached from the loop
+     */
+    public Set<BasicBlock> getExits() {
+        var exits = new LinkedHashSet<BasicBlock>();
+        for (var block : body)
+            for (var succ : block.getSuccessors())
+                if (!contains(succ))
+                    exits.add(succ);
+
+        return exits;
+    }
+
+    /**
+     * Finds the block where code can be placed to run once before the loop starts, which is the only block that
+     * enters the loop. If that block has other successors, the edge to the loop is split.
+     *
+     * @return the preheader, or null if the loop is entered from more than one place
+     */
+    public BasicBlock getPreheader(ControlFlowGraph cfg) {
+        var outside = header.getPredecessors().stream()
+                .filter(pred -> !contains(pred))
+                .toList();
+
+        if (outside.size() != 1)
+            return null;
+
+        var pred = outside.getFirst();
+        if (pred.getSuccessors().size() == 1)
+            return pred;
+
+        return cfg.splitEdge(pred, pred.getSuccessors().indexOf(header));
+    }
+
+    /**
+     * Loops with the same header are merged.
+     *
+     * @return the loops of the graph, inner loops first
+     */
+    public static List<NaturalLoop> find(ControlFlowGraph cfg, DominatorTree dominators) {
+        var loops = new LinkedHashMap<BasicBlock, NaturalLoop>();
+
+        for (var block : dominators.getReversePostorder()) {
+            for (var succ : block.getSuccessors()) {
+                if (!dominators.dominates(succ, block))
+                    continue;
+
+                var loop = loops.computeIfAbsent(succ, NaturalLoop::new);
+
+                // Blocks that reach the back edge, walking backwards until the header
+                var worklist = new ArrayDeque<BasicBlock>();
+                if (loop.body.add(block))
+                    worklist.add(block);
+
+                while (!worklist.isEmpty()) {
+                    for (var pred : worklist.poll().getPredecessors())
+                        if (dominators.isReachable(pred) && loop.body.add(pred))
+                            worklist.add(pred);
+                }
+            }
+        }
+
+        var result = new ArrayList<>(loops.values());
+        result.sort(Comparator.comparingInt(loop -> loop.body.size()));
+        return result;
+    }
+}
@@ -0,0 +1,243 @@
+package pt.up.fe.comp2025.optimization;
+
+import java.util.List;
+
+/**
+ * Builds the OLLIR code of a class in a single buffer, with a method per kind of declaration and instruction.
+ * <p>
+ * Operands are given as OLLIR code (e.g., "a.i32" or "1.bool"), and each instruction is written as soon as it is
+ * generated, so the code of an expression is never copied into the code of the expressions that use it.
+ */
+public class OllirBuilder {
+
+    private static final String TAB = "   ";
+    private static final String END_STMT = ";\n";
+    private static final String NL = "\n";
+
+    private final StringBuilder code;
+
+    public OllirBuilder() {
+        this.code = new StringBuilder();
+    }
+
+    public OllirBuilder importDecl(String importPath) {
+        code.append("import ").append(importPath).append(END_STMT);
+        return this;
+    }
+
+    public OllirBuilder beginClass(String className, String superClass) {
+        code.append(NL).append(className);
+        if (superClass != null)
+            code.append(" extends ").append(superClass);
+        code.append(" {").append(NL);
+        return this;
+    }
+
+    public OllirBuilder endClass() {
+        code.append("}").append(NL);
+        return this;
+    }
+
+    public OllirBuilder field(String name, String type) {
+        code.append(".field public ").append(name).append(type).append(END_STMT);
+        return this;
+    }
+
+    public OllirBuilder constructor(String className) {
+        code.append(NL).append(".construct ").append(className).append("().V {").append(NL);
+        code.append(TAB).append("invokespecial(this, \"<init>\").V").append(END_STMT);
+        code.append("}").append(NL);
+        return this;
+    }
+
+    /**
+     * @param params the code of the parameters, with their types
+     */
+    public OllirBuilder beginMethod(boolean isPublic, boolean isStatic, boolean isVarargs, String name,
+                                    List<String> params, String returnType) {
+        code.append(NL).append(".method ");
+        if (isPublic)
+            code.append("public ");
+        if (isStatic)
+            code.append("static ");
+        if (isVarargs)
+            code.append("varargs ");
+
+        code.append(name).append("(");
+        for (int i = 0; i < params.size(); i++) {
+            if (i > 0)
+                code.append(", ");
+            code.append(params.get(i));
+        }
+        code.append(")").append(returnType).append(" {").append(NL);
+        return this;
+    }
+
+    public OllirBuilder endMethod() {
+        code.append("}").append(NL);
+        return this;
+    }
+
+    public OllirBuilder label(String label) {
+        code.append(label).append(":").append(NL);
+        return this;
+    }
+
+    public OllirBuilder goTo(String label) {
+        return instruction().append("goto ").append(label).end();
+    }
+
+    /**
+     * "if (condition) goto label"
+     */
+    public OllirBuilder branch(String condition, String label) {
+        return instruction().append("if (").append(condition).append(") goto ").append(label).end();
+    }
+
+    /**
+     * "if (left op.type right) goto label"
+     */
+    public OllirBuilder branch(String left, String op, String type, String right, String label) {
+        return instruction().append("if (").append(left).append(" ").append(op).append(type).append(" ")
+                .append(right).append(") goto ").append(label).end();
+    }
+
+    /**
+     * "if (!type condition) goto label"
+     */
+    public OllirBuilder branchIfNot(String type, String condition, String label) {
+        return instruction().append("if (!").append(type).append(" ").append(condition).append(") goto ")
+                .append(label).end();
+    }
+
+    /**
+     * "dest :=type value"
+     */
+    public OllirBuilder assign(String dest, String type, String value) {
+        return beginAssign(dest, type).append(value).end();
+    }
+
+    /**
+     * "dest :=type left op.type right"
+     */
+    public OllirBuilder assignBinary(String dest, String type, String left, String op, String right) {
+        return beginAssign(dest, type).append(left).append(" ").append(op).append(type).append(" ").append(right)
+                .end();
+    }
+
+    /**
+     * "dest :=type op.type operand"
+     */
+    public OllirBuilder assignUnary(String dest, String type, String op, String operand) {
+        return beginAssign(dest, type).append(op).append(type).append(" ").append(operand).end();
+    }
+
+    /**
+     * "dest :=type array[index]type"
+     */
+    public OllirBuilder assignArrayAccess(String dest, String type, String array, String index) {
+        return beginAssign(dest, type).append(array).append("[").append(index).append("]").append(type).end();
+    }
+
+    /**
+     * "array[index]type :=type value"
+     */
+    public OllirBuilder assignArrayElement(String array, String index, String type, String value) {
+        return instruction().append(array).append("[").append(index).append("]").append(type).append(" :=")
+                .append(type).append(" ").append(value).end();
+    }
+
+    /**
+     * "dest :=type new(className)type"
+     */
+    public OllirBuilder assignNewObject(String dest, String type, String className) {
+        return beginAssign(dest, type).append("new(").append(className).append(")").append(type).end();
+    }
+
+    /**
+     * "dest :=type new(array, size)type"
+     */
+    public OllirBuilder assignNewArray(String dest, String type, String size) {
+        return beginAssign(dest, type).append("new(array, ").append(size).append(")").append(type).end();
+    }
+
+    /**
+     * "dest :=type arraylength(array)type"
+     */
+    public OllirBuilder assignArrayLength(String dest, String type, String array) {
+        return beginAssign(dest, type).append("arraylength(").append(array).append(")").append(type).end();
+    }
+
+    /**
+     * "dest :=type getfield(object, field)type"
+     */
+    public OllirBuilder assignGetField(String dest, String type, String object, String field) {
+        return beginAssign(dest, type).append("getfield(").append(object).append(", ").append(field).append(")")
+                .append(type).end();
+    }
+
+    /**
+     * "putfield(object, field, value).V"
+     */
+    public OllirBuilder putField(String object, String field, String value) {
+        return instruction().append("putfield(").append(object).append(", ").append(field).append(", ")
+                .append(value).append(").V").end();
+    }
+
+    /**
+     * "[dest :=type ]invoke(caller, "method", args...)type"
+     *
+     * @param dest the variable that receives the result, or null if it is not used
+     */
+    public OllirBuilder call(String dest, String invoke, String caller, String method, List<String> args,
+                             String type) {
+        if (dest != null)
+            beginAssign(dest, type);
+        else
+            instruction();
+
+        append(invoke).append("(").append(caller).append(", \"").append(method).append("\"");
+        for (var arg : args)
+            append(", ").append(arg);
+
+        return append(")").append(type).end();
+    }
+
+    /**
+     * "ret.type value", where the value is empty for void methods
+     */
+    public OllirBuilder ret(String type, String value) {
+        instruction().append("ret").append(type);
+        if (!value.isEmpty())
+            append(" ").append(value);
+
+        return end();
+    }
+
+    public String build() {
+        return code.toString();
+    }
+
+    @Override
+    public String toString() {
+        return build();
+    }
+
+    private OllirBuilder beginAssign(String dest, String type) {
+        return instruction().append(dest).append(" :=").append(type).append(" ");
+    }
+
+    private OllirBuilder instruction() {
+        return append(TAB);
+    }
+
+    private OllirBuilder append(String text) {
+        code.append(text);
+        return this;
+    }
+
+    private OllirBuilder end() {
+        code.append(END_STMT);
+        return this;
+    }
+}
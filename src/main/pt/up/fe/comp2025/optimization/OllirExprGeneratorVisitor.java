@@ -2,35 +2,172 @@ package pt.up.fe.comp2025.optimization;
 
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp.jmm.ast.AJmmVisitor;
 import pt.up.fe.comp.jmm.ast.JmmNode;
-import pt.up.fe.comp.jmm.ast.PreorderJmmVisitor;
 import pt.up.fe.comp2025.ast.TypeUtils;
+import pt.up.fe.comp2025.symboltable.JmmSymbolTable;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static pt.up.fe.comp2025.ast.Kind.*;
 
 /**
  * Generates OLLIR code from JmmNodes that are expressions.
+ * <p>
+ * The instructions that compute an expression are written to the {@link OllirBuilder} given to the visit, and the
+ * visit returns the code of the operand that holds its value.
+ * <p>
+ * When destinations are reused, the expression of an assignment to a local variable computes its value directly in
+ * that variable (e.g., "x = a + b" becomes "x := a + b" instead of "t := a + b; x := t"), so only the inner
+ * expressions need temporaries.
  */
-public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExprResult> {
+public class OllirExprGeneratorVisitor extends AJmmVisitor<OllirBuilder, String> {
 
-    private static final String SPACE = " ";
-    private static final String ASSIGN = ":=";
-    private final String END_STMT = ";\n";
-    private final String NL = "\n";
-
-    private final SymbolTable table;
+    private final JmmSymbolTable table;
 
     private final TypeUtils types;
     private final OptUtils ollirTypes;
+    private final boolean reuseDestinations;
+
+    // Destination of the expression being lowered by visitInto
+    private JmmNode targetNode;
+    private String target;
+    private String targetType;
+
+    private int numTemps;
+    private int numReused;
 
 
-    public OllirExprGeneratorVisitor(SymbolTable table, OptUtils ollirTypes) {
-        this.table = table;
+    public OllirExprGeneratorVisitor(SymbolTable table, OptUtils ollirTypes, boolean reuseDestinations) {
+        this.table = (JmmSymbolTable) table;
         this.types = new TypeUtils(table);
         this.ollirTypes = ollirTypes;
+        this.reuseDestinations = reuseDestinations;
+        this.numTemps = 0;
+        this.numReused = 0;
+    }
+
+    /**
+     * Generates the code of an expression whose value is assigned to the given variable.
+     *
+     * @return the code of the operand that holds the value, which is the destination itself if the expression was
+     * computed directly in it
+     */
+    public String visitInto(JmmNode node, String dest, String destType, OllirBuilder code) {
+        while (node.getKind().equals(PAREN_EXPR.toString()))
+            node = node.getChild(0);
+
+        if (!reuseDestinations)
+            return visit(node, code);
+
+        targetNode = node;
+        target = dest;
+        targetType = destType;
+
+        try {
+            return visit(node, code);
+        } finally {
+            targetNode = null;
+            target = null;
+            targetType = null;
+        }
+    }
+
+    /**
+     * Generates code that jumps to the label if the condition has the given value, and continues to the next
+     * instruction otherwise.
+     * <p>
+     * Comparisons, "!" and "&&" become conditional jumps (e.g., "if (a && b < c)" jumps over the "then" block with
+     * "if (!a) goto ..." and "if (b >= c) goto ..."), so their boolean values are never computed.
+     */
+    public void visitCondition(JmmNode node, boolean jumpIf, String label, OllirBuilder code) {
+        var kind = node.getKind();
+
+        if (kind.equals(PAREN_EXPR.toString())) {
+            visitCondition(node.getChild(0), jumpIf, label, code);
+            return;
+        }
+
+        if (kind.equals(NOT_EXPR.toString())) {
+            visitCondition(node.getChild(0), !jumpIf, label, code);
+            return;
+        }
+
+        if (kind.equals(BINARY_EXPR.toString()) && node.get("op").equals("&&")) {
+            if (!jumpIf) {
+                // False if either side is false
+                visitCondition(node.getChild(0), false, label, code);
+                visitCondition(node.getChild(1), false, label, code);
+                return;
+            }
+
+            // True if the left side is true and then the right side is true
+            String endIfLabel = "endif" + ollirTypes.nextIfLabelNumber();
+            visitCondition(node.getChild(0), false, endIfLabel, code);
+            visitCondition(node.getChild(1), true, label, code);
+            code.label(endIfLabel);
+            return;
+        }
+
+        String ollirBooleanType = ollirTypes.toOllirType(TypeUtils.newBooleanType());
+
+        if (kind.equals(BINARY_EXPR.toString()) && node.get("op").equals("<")) {
+            var lhs = visit(node.getChild(0), code);
+            var rhs = visit(node.getChild(1), code);
+
+            code.branch(lhs, jumpIf ? "<" : ">=", ollirBooleanType, rhs, label);
+            return;
+        }
+
+        var value = visit(node, code);
+        if (jumpIf)
+            code.branch(value, label);
+        else
+            code.branchIfNot(ollirBooleanType, value, label);
+    }
+
+    /**
+     * @return the number of temporaries used so far
+     */
+    public int getNumTemps() {
+        return numTemps;
+    }
+
+    /**
+     * @return the number of temporaries saved so far by computing values directly in the destination
+     */
+    public int getNumReused() {
+        return numReused;
+    }
+
+    /**
+     * @return the operand that receives the value of the node: the destination of the assignment, if the node is
+     * the expression assigned and has the same type, or a new temporary
+     */
+    private String newResult(JmmNode node, String ollirType) {
+        if (node == targetNode && ollirType.equals(targetType)) {
+            numReused++;
+            return target;
+        }
+
+        return nextTemp() + ollirType;
+    }
+
+    /**
+     * @return true if the expression reads the local variable that is the destination of the assignment
+     */
+    private boolean readsTarget(JmmNode expr) {
+        var name = target.substring(0, target.indexOf('.'));
+
+        return Stream.concat(Stream.of(expr), expr.getDescendants().stream())
+                .anyMatch(node -> VAR_REF_EXPR.check(node) && node.get("name").equals(name) && !isField(node));
+    }
+
+    private String nextTemp() {
+        numTemps++;
+        return ollirTypes.nextTemp();
     }
 
 
@@ -53,133 +190,103 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         setDefaultVisit(this::defaultVisit);
     }
 
-    private OllirExprResult visitArrayExpr(JmmNode node, Void unused) {
-        String ollirType = ollirTypes.toOllirType(node.get("type"));
-        var tmp = ollirTypes.nextTemp();
-        String code = tmp + ollirType;
+    private String visitArrayExpr(JmmNode node, OllirBuilder code) {
+        String ollirType = ollirTypes.toOllirType(TypeUtils.getType(node));
+        // Not computed in the destination, since the elements can read it
+        var tmp = nextTemp();
+        String result = tmp + ollirType;
         // jmm array elems are of type int
         String ollirIntType = ollirTypes.toOllirType(TypeUtils.newIntType());
 
-        StringBuilder computation = new StringBuilder();
         var arrayElems = node.getChildren();
 
-        computation.append(code).append(SPACE).append(ASSIGN).append(ollirType).append(SPACE)
-                .append("new(array, ").append(arrayElems.size()).append(ollirIntType).append(")").append(ollirType).append(END_STMT);
+        code.assignNewArray(result, ollirType, arrayElems.size() + ollirIntType);
 
         for (int i = 0; i < arrayElems.size(); i++) {
-            var elem = visit(arrayElems.get(i));
-            computation.append(elem.getComputation());
-            computation.append(tmp).append("[").append(i).append(ollirIntType).append("]").append(ollirIntType).append(SPACE)
-                    .append(ASSIGN).append(ollirIntType).append(SPACE).append(elem.getCode()).append(END_STMT);
+            var elem = visit(arrayElems.get(i), code);
+            code.assignArrayElement(tmp, i + ollirIntType, ollirIntType, elem);
         }
 
-        return new OllirExprResult(code, computation);
+        return result;
     }
 
-    private OllirExprResult visitNotExpr(JmmNode node, Void unused) {
-        var expr = visit(node.getChild(0));
-
-        StringBuilder computation = new StringBuilder();
-        computation.append(expr.getComputation());
+    private String visitNotExpr(JmmNode node, OllirBuilder code) {
+        var expr = visit(node.getChild(0), code);
 
-        String ollirType = ollirTypes.toOllirType(node.get("type"));
-        String code = ollirTypes.nextTemp() + ollirType;
+        String ollirType = ollirTypes.toOllirType(TypeUtils.getType(node));
+        String result = newResult(node, ollirType);
 
-        computation.append(code).append(SPACE).append(ASSIGN).append(ollirType).append(SPACE)
-                .append("!").append(ollirType).append(SPACE).append(expr.getCode()).append(END_STMT);
+        code.assignUnary(result, ollirType, "!", expr);
 
-        return new OllirExprResult(code, computation);
+        return result;
     }
 
-    private OllirExprResult visitParenExpr(JmmNode node, Void unused) {
-        var child = visit(node.getChild(0));
-        return new OllirExprResult(child.getCode(), child.getComputation());
+    private String visitParenExpr(JmmNode node, OllirBuilder code) {
+        return visit(node.getChild(0), code);
     }
 
-    private OllirExprResult visitThisExpr(JmmNode node, Void unused) {
-        String ollirType = ollirTypes.toOllirType(node.get("type"));
-        String code = "this" + ollirType;
-        return new OllirExprResult(code);
+    private String visitThisExpr(JmmNode node, OllirBuilder code) {
+        String ollirType = ollirTypes.toOllirType(TypeUtils.getType(node));
+        return "this" + ollirType;
     }
 
-    private OllirExprResult visitNewObjectExpr(JmmNode node, Void unused) {
+    private String visitNewObjectExpr(JmmNode node, OllirBuilder code) {
         String className = node.get("name");
-        String ollirType = ollirTypes.toOllirType(node.get("type"));
-        String code = ollirTypes.nextTemp() + ollirType;
+        String ollirType = ollirTypes.toOllirType(TypeUtils.getType(node));
+        String result = newResult(node, ollirType);
 
-        StringBuilder computation = new StringBuilder();
-        computation.append(code).append(SPACE).append(ASSIGN).append(ollirType).append(SPACE)
-                .append("new").append("(").append(className).append(")").append(ollirType).append(END_STMT);
-        computation.append("invokespecial(").append(code).append(", \"<init>\").V").append(END_STMT);
+        code.assignNewObject(result, ollirType, className);
+        code.call(null, "invokespecial", result, "<init>", List.of(), ".V");
 
-        return new OllirExprResult(code, computation);
+        return result;
     }
 
-    private OllirExprResult visitArrayAccessExpr(JmmNode node, Void unused) {
-        var array = visit(node.getChild(0));
-        var index = visit(node.getChild(1));
+    private String visitArrayAccessExpr(JmmNode node, OllirBuilder code) {
+        var array = visit(node.getChild(0), code);
+        var index = visit(node.getChild(1), code);
 
-        StringBuilder computation = new StringBuilder();
-        computation.append(array.getComputation());
-        computation.append(index.getComputation());
+        String ollirType = ollirTypes.toOllirType(TypeUtils.getType(node));
+        String result = newResult(node, ollirType);
 
-        String ollirType = ollirTypes.toOllirType(node.get("type"));
-        String code = ollirTypes.nextTemp() + ollirType;
+        code.assignArrayAccess(result, ollirType, array, index);
 
-        computation.append(code).append(SPACE).append(ASSIGN).append(ollirType).append(SPACE)
-                .append(array.getCode()).append("[").append(index.getCode()).append("]").append(ollirType).append(END_STMT);
-
-        return new OllirExprResult(code, computation);
+        return result;
     }
 
-    private OllirExprResult visitLengthExpr(JmmNode node, Void unused) {
-        var array = visit(node.getChild(0));
-
-        StringBuilder computation = new StringBuilder();
-        computation.append(array.getComputation());
+    private String visitLengthExpr(JmmNode node, OllirBuilder code) {
+        var array = visit(node.getChild(0), code);
 
-        String ollirType = ollirTypes.toOllirType(node.get("type"));
-        String code = ollirTypes.nextTemp() + ollirType;
+        String ollirType = ollirTypes.toOllirType(TypeUtils.getType(node));
+        String result = newResult(node, ollirType);
 
-        computation.append(code).append(SPACE).append(ASSIGN).append(ollirType).append(SPACE)
-                .append("arraylength(").append(array.getCode()).append(")").append(ollirType).append(END_STMT);
+        code.assignArrayLength(result, ollirType, array);
 
-        return new OllirExprResult(code, computation);
+        return result;
     }
 
-    private OllirExprResult visitNewIntArrayExpr(JmmNode node, Void unused) {
-        var size = visit(node.getChild(0));
+    private String visitNewIntArrayExpr(JmmNode node, OllirBuilder code) {
+        var size = visit(node.getChild(0), code);
 
-        StringBuilder computation = new StringBuilder();
-        computation.append(size.getComputation());
+        String ollirType = ollirTypes.toOllirType(TypeUtils.getType(node));
+        String result = newResult(node, ollirType);
 
-        String ollirType = ollirTypes.toOllirType(node.get("type"));
-        String code = ollirTypes.nextTemp() + ollirType;
+        code.assignNewArray(result, ollirType, size);
 
-        computation.append(code).append(SPACE).append(ASSIGN).append(ollirType).append(SPACE)
-                .append("new").append("(").append("array").append(", ").append(size.getCode()).append(")")
-                .append(ollirType).append(END_STMT);
-
-        return new OllirExprResult(code, computation);
+        return result;
     }
 
-    private OllirExprResult visitMethodCallExpr(JmmNode node, Void unused) {
-
-        var caller = visit(node.getChild(0));
+    private String visitMethodCallExpr(JmmNode node, OllirBuilder code) {
 
-        StringBuilder computation = new StringBuilder();
-        computation.append(caller.getComputation());
+        var caller = visit(node.getChild(0), code);
 
         List<String> argCodes = new ArrayList<>();
         var numArgNodes = node.getChildren().size() - 1;
         for (int i = 1; i <= numArgNodes; i++) {
-            var arg = visit(node.getChild(i));
-            computation.append(arg.getComputation());
-            argCodes.add(arg.getCode());
+            argCodes.add(visit(node.getChild(i), code));
         }
 
         var methodName = node.get("name");
-        var methodType = TypeUtils.getTypeFromString(node.get("type"));
+        var methodType = TypeUtils.getType(node);
 
         var isVarargs = false;
         var params = table.getParameters(methodName);
@@ -189,18 +296,15 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         if (isVarargs) {
             String ollirIntArrayType = ollirTypes.toOllirType(TypeUtils.newArrayIntType());
             String ollirIntType = ollirTypes.toOllirType(TypeUtils.newIntType());
-            String tmp = ollirTypes.nextTemp();
+            String tmp = nextTemp();
             String tmpCode = tmp + ollirIntArrayType;
             var numArrayElems = numArgNodes - params.size() + 1;
-            numArgNodes = params.size();
 
-            computation.append(tmpCode).append(SPACE).append(ASSIGN).append(ollirIntArrayType).append(SPACE)
-                    .append("new(array, ").append(numArrayElems).append(ollirIntType).append(")").append(ollirIntArrayType).append(END_STMT);
+            code.assignNewArray(tmpCode, ollirIntArrayType, numArrayElems + ollirIntType);
 
             for (int i = 0; i < numArrayElems; i++) {
                 var elemCode = argCodes.get(argCodes.size() - numArrayElems + i);
-                computation.append(tmp).append("[").append(i).append(ollirIntType).append("]").append(ollirIntType).append(SPACE)
-                        .append(ASSIGN).append(ollirIntType).append(SPACE).append(elemCode).append(END_STMT);
+                code.assignArrayElement(tmp, i + ollirIntType, ollirIntType, elemCode);
             }
 
             argCodes.subList(argCodes.size() - numArrayElems, argCodes.size()).clear();
@@ -212,7 +316,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         var assignStmt = node.getAncestor(ASSIGN_STMT);
         if (methodType.getName().equals("imported")) {
             if (assignStmt.isPresent())
-                methodType = TypeUtils.getTypeFromString(assignStmt.get().get("type"));
+                methodType = TypeUtils.getType(assignStmt.get());
             else
                 methodType = TypeUtils.newVoidType();
         }
@@ -221,162 +325,125 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         // if the method is void or the return value is not used, we don't need to assign the result to tmp
         boolean isVoid = methodOllirType.equals(".V");
         boolean isReturnUsed = !node.getParent().getKind().equals(EXPR_STMT.toString());
-        String code = (isVoid || !isReturnUsed) ? "" : ollirTypes.nextTemp() + methodOllirType;
-        if (!isVoid && isReturnUsed)
-            computation.append(code).append(SPACE).append(ASSIGN).append(methodOllirType).append(SPACE);
+        String result = (isVoid || !isReturnUsed) ? "" : newResult(node, methodOllirType);
 
-        var callerType = TypeUtils.getTypeFromString(node.getChild(0).get("type"));
+        String invoke;
+        var callerType = TypeUtils.getType(node.getChild(0));
         if (callerType.getName().equals("imported"))
-            computation.append("invokestatic");
+            invoke = "invokestatic";
         else if (methodName.equals(table.getClassName()))
-            computation.append("invokespecial");
+            invoke = "invokespecial";
         else
-            computation.append("invokevirtual");
+            invoke = "invokevirtual";
 
-        computation.append("(").append(caller.getCode()).append(", ").append(String.format("\"%s\"", methodName));
-        for (int i = 1; i <= numArgNodes; i++) {
-            computation.append(", ");
-            computation.append(argCodes.get(i - 1));
-        }
-        computation.append(")").append(methodOllirType).append(END_STMT);
+        code.call(result.isEmpty() ? null : result, invoke, caller, methodName, argCodes, methodOllirType);
 
-        return new OllirExprResult(code, computation.toString());
+        return result;
     }
 
 
-    private OllirExprResult visitInteger(JmmNode node, Void unused) {
+    private String visitInteger(JmmNode node, OllirBuilder code) {
         var intType = TypeUtils.newIntType();
         String ollirIntType = ollirTypes.toOllirType(intType);
-        String code = node.get("value") + ollirIntType;
-        return new OllirExprResult(code);
+        return node.get("value") + ollirIntType;
     }
 
-    private OllirExprResult visitBoolean(JmmNode node, Void unused) {
+    private String visitBoolean(JmmNode node, OllirBuilder code) {
         var booleanType = TypeUtils.newBooleanType();
         String ollirBooleanType = ollirTypes.toOllirType(booleanType);
-        String code = (node.get("value").equals("true") ? "1" : "0") + ollirBooleanType;
-        return new OllirExprResult(code);
+        return (node.get("value").equals("true") ? "1" : "0") + ollirBooleanType;
     }
 
-    private OllirExprResult visitShortCircuitAnd(JmmNode node) {
-        var lhs = visit(node.getChild(0));
-        var rhs = visit(node.getChild(1));
-
-        StringBuilder computation = new StringBuilder();
-        computation.append(lhs.getComputation());
+    private String visitShortCircuitAnd(JmmNode node, OllirBuilder code) {
+        var lhs = visit(node.getChild(0), code);
 
-        String ollirType = ollirTypes.toOllirType(node.get("type"));
-        String code = ollirTypes.nextTemp() + ollirType;
+        // Not computed in the destination when the right side reads it, so the variable is only written once its
+        // old value is no longer needed
+        String ollirType = ollirTypes.toOllirType(TypeUtils.getType(node));
+        String result = node == targetNode && readsTarget(node.getChild(1)) ? nextTemp() + ollirType
+                : newResult(node, ollirType);
 
         int num = ollirTypes.nextIfLabelNumber();
         String thenLabel = "then" + num;
         String endIfLabel = "endif" + num;
 
-        computation.append("if (").append(lhs.getCode()).append(") goto ").append(thenLabel).append(END_STMT);
-        computation.append(code).append(SPACE).append(ASSIGN).append(ollirType).append(SPACE)
-                .append("0").append(ollirType).append(END_STMT);
-        computation.append("goto ").append(endIfLabel).append(END_STMT);
-        computation.append(thenLabel).append(":").append(NL);
-        computation.append(rhs.getComputation());
-        computation.append(code).append(SPACE).append(ASSIGN).append(ollirType).append(SPACE)
-                .append(rhs.getCode()).append(END_STMT);
-        computation.append(endIfLabel).append(":").append(NL);
-
-        return new OllirExprResult(code, computation);
+        code.branch(lhs, thenLabel);
+        code.assign(result, ollirType, "0" + ollirType);
+        code.goTo(endIfLabel);
+        code.label(thenLabel);
+
+        // The right side is only computed when the left side is true
+        var rhs = visit(node.getChild(1), code);
+        code.assign(result, ollirType, rhs);
+        code.label(endIfLabel);
+
+        return result;
     }
 
 
-    private OllirExprResult visitBinExpr(JmmNode node, Void unused) {
+    private String visitBinExpr(JmmNode node, OllirBuilder code) {
         var op = node.get("op");
 
         if (op.equals("&&"))
-            return visitShortCircuitAnd(node);
-
-        var lhs = visit(node.getChild(0));
-        var rhs = visit(node.getChild(1));
-
-        StringBuilder computation = new StringBuilder();
+            return visitShortCircuitAnd(node, code);
 
         // code to compute the children
-        computation.append(lhs.getComputation());
-        computation.append(rhs.getComputation());
+        var lhs = visit(node.getChild(0), code);
+        var rhs = visit(node.getChild(1), code);
 
         // code to compute self
         Type resType = types.getExprType(node);
         String resOllirType = ollirTypes.toOllirType(resType);
-        String code = ollirTypes.nextTemp() + resOllirType;
+        String result = newResult(node, resOllirType);
 
-        computation.append(code).append(SPACE)
-                .append(ASSIGN).append(resOllirType).append(SPACE)
-                .append(lhs.getCode()).append(SPACE);
+        code.assignBinary(result, resOllirType, lhs, op, rhs);
 
-        Type type = types.getExprType(node);
-        computation.append(op).append(ollirTypes.toOllirType(type)).append(SPACE)
-                .append(rhs.getCode()).append(END_STMT);
-
-        return new OllirExprResult(code, computation);
+        return result;
     }
 
     private boolean isField(JmmNode node) {
         String methodName = node.getAncestor(METHOD_DECL).get().get("name");
         String varRefExprName = node.get("name");
 
-        for (var localVar: table.getLocalVariables(methodName)) {
-            if (localVar.getName().equals(varRefExprName))
-                return false;
-        }
-
-        for (var param: table.getParameters(methodName)) {
-            if (param.getName().equals(varRefExprName))
-                return false;
-        }
-
-        for (var field: table.getFields()) {
-            if (field.getName().equals(varRefExprName))
-                return true;
-        }
-
-        return false;
+        return table.isField(methodName, varRefExprName);
     }
 
 
-    private OllirExprResult visitVarRef(JmmNode node, Void unused) {
+    private String visitVarRef(JmmNode node, OllirBuilder code) {
 
         var id = node.get("name");
         Type type = types.getExprType(node);
 
         if (type.getName().equals("imported"))
-            return new OllirExprResult(id);
+            return id;
 
         String ollirType = ollirTypes.toOllirType(type);
-        String code = id + ollirType;
+        String result = id + ollirType;
 
-        StringBuilder computation = new StringBuilder();
-        if(isField(node)) {
-            String tmp = ollirTypes.nextTemp() + ollirType;
+        if (isField(node)) {
+            String tmp = newResult(node, ollirType);
 
-            computation.append(tmp).append(SPACE).append(ASSIGN).append(ollirType).append(SPACE)
-                    .append("getfield(this, ").append(code).append(")").append(ollirType).append(END_STMT);
-            code = tmp;
+            code.assignGetField(tmp, ollirType, "this", result);
+            result = tmp;
         }
 
-        return new OllirExprResult(code, computation);
+        return result;
     }
 
     /**
-     * Default visitor. Visits every child node and return an empty result.
+     * Default visitor. Visits every child node and returns an empty operand.
      *
      * @param node
-     * @param unused
+     * @param code
      * @return
      */
-    private OllirExprResult defaultVisit(JmmNode node, Void unused) {
+    private String defaultVisit(JmmNode node, OllirBuilder code) {
 
         for (var child : node.getChildren()) {
-            visit(child);
+            visit(child, code);
         }
 
-        return OllirExprResult.EMPTY;
+        return "";
     }
 
 }
@@ -5,25 +5,26 @@ import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.AJmmVisitor;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp2025.ast.TypeUtils;
+import pt.up.fe.comp2025.symboltable.JmmSymbolTable;
 
-import java.util.stream.Collectors;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import static pt.up.fe.comp2025.ast.Kind.*;
 
 /**
- * Generates OLLIR code from JmmNodes that are not expressions.
+ * Generates OLLIR code from JmmNodes that are not expressions, into the {@link OllirBuilder} given to the visit.
  */
-public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
-
-    private static final String SPACE = " ";
-    private static final String ASSIGN = ":=";
-    private final String END_STMT = ";\n";
-    private final String NL = "\n";
-    private final String L_BRACKET = " {\n";
-    private final String R_BRACKET = "}\n";
+public class OllirGeneratorVisitor extends AJmmVisitor<OllirBuilder, Void> {
 
+    /**
+     * Temporaries used by the code of a method, and how many more would be used without reusing destinations.
+     */
+    public record TempCount(int temps, int reused) {
+    }
 
-    private final SymbolTable table;
+    private final JmmSymbolTable table;
 
     private final TypeUtils types;
     private final OptUtils ollirTypes;
@@ -31,11 +32,32 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
     private final OllirExprGeneratorVisitor exprVisitor;
 
+    private final Map<String, TempCount> tempCounts;
+
+    private final boolean rotateLoops;
+
     public OllirGeneratorVisitor(SymbolTable table) {
-        this.table = table;
+        this(table, false);
+    }
+
+    /**
+     * @param optimize if true, the value assigned to a local variable is computed directly in it, and while loops
+     *                 are rotated (see {@link #visitWhileStmt})
+     */
+    public OllirGeneratorVisitor(SymbolTable table, boolean optimize) {
+        this.table = (JmmSymbolTable) table;
         this.types = new TypeUtils(table);
         this.ollirTypes = new OptUtils(types);
-        exprVisitor = new OllirExprGeneratorVisitor(table, ollirTypes);
+        this.tempCounts = new LinkedHashMap<>();
+        this.rotateLoops = optimize;
+        exprVisitor = new OllirExprGeneratorVisitor(table, ollirTypes, optimize);
+    }
+
+    /**
+     * @return the temporaries used by each method visited, in order
+     */
+    public Map<String, TempCount> getTempCounts() {
+        return tempCounts;
     }
 
 
@@ -45,7 +67,6 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         addVisit(PROGRAM, this::visitProgram);
         addVisit(CLASS_DECL, this::visitClass);
         addVisit(METHOD_DECL, this::visitMethodDecl);
-        addVisit(PARAM, this::visitParam);
         addVisit(RETURN_STMT, this::visitReturn);
         addVisit(ASSIGN_STMT, this::visitAssignStmt);
         addVisit(EXPR_STMT, this::visitExprStmt);
@@ -57,125 +78,109 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         setDefaultVisit(this::defaultVisit);
     }
 
-    private String visitBlockStmt(JmmNode node, Void unused) {
-        StringBuilder code = new StringBuilder();
-
+    private Void visitBlockStmt(JmmNode node, OllirBuilder code) {
         for (var child : node.getChildren()) {
-            code.append(visit(child));
+            visit(child, code);
         }
 
-        return code.toString();
+        return null;
     }
 
-    private String visitArrayAssignStmt(JmmNode node, Void unused) {
+    private Void visitArrayAssignStmt(JmmNode node, OllirBuilder code) {
         var arrayId = node.getChild(0).get("name");
-        var array = exprVisitor.visit(node.getChild(0));
-        var index = exprVisitor.visit(node.getChild(1));
-        var value = exprVisitor.visit(node.getChild(2));
-
-        String ollirType = ollirTypes.toOllirType(node.get("type"));
+        var array = exprVisitor.visit(node.getChild(0), code);
+        var index = exprVisitor.visit(node.getChild(1), code);
+        var value = exprVisitor.visit(node.getChild(2), code);
 
-        StringBuilder code = new StringBuilder();
-
-        code.append(array.getComputation());
-        code.append(index.getComputation());
-        code.append(value.getComputation());
+        String ollirType = ollirTypes.toOllirType(TypeUtils.getType(node));
 
         if (isField(node.getChild(0)))
-            arrayId = array.getCode();
+            arrayId = array;
 
-        code.append(arrayId).append("[").append(index.getCode()).append("]").append(ollirType).append(SPACE);
-        code.append(ASSIGN).append(ollirType).append(SPACE);
-        code.append(value.getCode()).append(END_STMT);
+        code.assignArrayElement(arrayId, index, ollirType, value);
 
-        return code.toString();
+        return null;
     }
 
-    private String visitWhileStmt(JmmNode node, Void unused) {
+    /**
+     * Without optimizations, the condition is tested at the top of the loop and the body ends with a jump back to
+     * it. Rotated loops test the condition once before entering the loop, and again at the end of the body, so each
+     * iteration only runs the conditional jump back to the start of the body. The first test is left out when the
+     * constant propagation found that the condition always holds there.
+     */
+    private Void visitWhileStmt(JmmNode node, OllirBuilder code) {
         int num = ollirTypes.nextWhileLabelNumber();
         String whileLabel = "while" + num;
         num = ollirTypes.nextIfLabelNumber();
         String endIfLabel = "endif" + num;
         var loopBlockStmt = node.getChild(1);
 
-        var condition = exprVisitor.visit(node.getChild(0));
-        StringBuilder code = new StringBuilder();
+        if (rotateLoops) {
+            if (!node.hasAttribute(ConstantPropagation.ALWAYS_ENTERED))
+                exprVisitor.visitCondition(node.getChild(0), false, endIfLabel, code);
+            code.label(whileLabel);
+            visit(loopBlockStmt, code);
+            exprVisitor.visitCondition(node.getChild(0), true, whileLabel, code);
+            code.label(endIfLabel);
 
-        code.append(whileLabel).append(":").append(NL);
-        code.append(condition.getComputation());
+            return null;
+        }
 
-        var boolenType = TypeUtils.newBooleanType();
-        String ollirBooleanType = ollirTypes.toOllirType(boolenType);
-        code.append("if (!").append(ollirBooleanType).append(" ").append(condition.getCode()).append(") goto ").append(endIfLabel).append(END_STMT);
-        code.append(visit(loopBlockStmt));
-        code.append("goto ").append(whileLabel).append(END_STMT);
-        code.append(endIfLabel).append(":").append(NL);
+        code.label(whileLabel);
+        exprVisitor.visitCondition(node.getChild(0), false, endIfLabel, code);
+        visit(loopBlockStmt, code);
+        code.goTo(whileLabel);
+        code.label(endIfLabel);
 
-        return code.toString();
+        return null;
     }
 
-    private String visitIfStmt(JmmNode node, Void unused) {
-        var condition = exprVisitor.visit(node.getChild(0));
-
-        StringBuilder code = new StringBuilder();
-
-        code.append(condition.getComputation());
-
+    private Void visitIfStmt(JmmNode node, OllirBuilder code) {
         int num = ollirTypes.nextIfLabelNumber();
         String thenLabel = "then" + num;
         String endIfLabel = "endif" + num;
         var thenBlockStmt = node.getChild(1);
         var elseBlockStmt = node.getChild(2);
 
-        code.append("if (").append(condition.getCode()).append(") goto ").append(thenLabel).append(END_STMT);
-        code.append(visit(elseBlockStmt));
-        code.append("goto ").append(endIfLabel).append(END_STMT);
-        code.append(thenLabel).append(":").append(NL);
-        code.append(visit(thenBlockStmt));
-        code.append(endIfLabel).append(":").append(NL);
+        exprVisitor.visitCondition(node.getChild(0), true, thenLabel, code);
+        visit(elseBlockStmt, code);
+        code.goTo(endIfLabel);
+        code.label(thenLabel);
+        visit(thenBlockStmt, code);
+        code.label(endIfLabel);
 
-        return code.toString();
+        return null;
     }
 
-    private String visitExprStmt(JmmNode node, Void unused) {
-        var expr = exprVisitor.visit(node.getChild(0));
+    private Void visitExprStmt(JmmNode node, OllirBuilder code) {
+        exprVisitor.visit(node.getChild(0), code);
 
-        return expr.getComputation();
+        return null;
     }
 
     private boolean isField(JmmNode node) {
         String methodName = node.getAncestor(METHOD_DECL).get().get("name");
         String varRefExprName = node.get("name");
 
-        for (var localVar : table.getLocalVariables(methodName)) {
-            if (localVar.getName().equals(varRefExprName))
-                return false;
-        }
-
-        for (var param : table.getParameters(methodName)) {
-            if (param.getName().equals(varRefExprName))
-                return false;
-        }
-
-        for (var field : table.getFields()) {
-            if (field.getName().equals(varRefExprName))
-                return true;
-        }
-
-        return false;
+        return table.isField(methodName, varRefExprName);
     }
 
 
-    private String visitAssignStmt(JmmNode node, Void unused) {
-        StringBuilder code = new StringBuilder();
-
+    private Void visitAssignStmt(JmmNode node, OllirBuilder code) {
         var rhsNode = node.getChild(0);
-        var thisType = node.get("type");
+        var thisType = TypeUtils.getType(node);
         String typeString = ollirTypes.toOllirType(thisType);
         var varCode = node.get("name") + typeString;
 
+        if (isField(node)) {
+            var rhs = exprVisitor.visit(rhsNode, code);
+            code.putField("this", varCode, rhs);
+
+            return null;
+        }
+
         // Check for direct binary assignments (e.g., i = i + 1, i = 1 + i or i = i - 1)
-        if (rhsNode.getKind().equals("BinaryExpr") && !isField(node)) {
+        if (rhsNode.getKind().equals("BinaryExpr")) {
             var left = rhsNode.getChild(0);
             var right = rhsNode.getChild(1);
 
@@ -186,207 +191,118 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
             if (isDirectAssign) {
                 var op = rhsNode.get("op");
-                var leftExpr = exprVisitor.visit(left);
-                var rightExpr = exprVisitor.visit(right);
-
-                code.append(leftExpr.getComputation());
-                code.append(rightExpr.getComputation());
-                code.append(varCode).append(SPACE).append(ASSIGN).append(typeString).append(SPACE);
-                code.append(leftExpr.getCode()).append(SPACE).append(op);
-                code.append(typeString).append(SPACE).append(rightExpr.getCode()).append(END_STMT);
-                return code.toString();
-            }
-        }
-
-        var rhs = exprVisitor.visit(rhsNode);
-
-        // code to compute the children
-        code.append(rhs.getComputation());
-
-        if (isField(node)) {
-            code.append("putfield(this, ").append(varCode).append(", ")
-                    .append(rhs.getCode()).append(").V").append(END_STMT);
+                var leftExpr = exprVisitor.visit(left, code);
+                var rightExpr = exprVisitor.visit(right, code);
 
-            return code.toString();
+                code.assignBinary(varCode, typeString, leftExpr, op, rightExpr);
+                return null;
+            }
         }
 
-        code.append(varCode);
-        code.append(SPACE);
-
-        code.append(ASSIGN);
-        code.append(typeString);
-        code.append(SPACE);
+        // The value can be computed directly in the variable
+        var rhs = exprVisitor.visitInto(rhsNode, varCode, typeString, code);
 
-        code.append(rhs.getCode());
+        if (!rhs.equals(varCode))
+            code.assign(varCode, typeString, rhs);
 
-        code.append(END_STMT);
-
-        return code.toString();
+        return null;
     }
 
 
-    private String visitReturn(JmmNode node, Void unused) {
+    private Void visitReturn(JmmNode node, OllirBuilder code) {
         String methodName = node.getAncestor(METHOD_DECL).map(method -> method.get("name")).orElseThrow();
         Type retType = table.getReturnType(methodName);
 
-        StringBuilder code = new StringBuilder();
-
-
-        var expr = node.getNumChildren() > 0 ? exprVisitor.visit(node.getChild(0)) : OllirExprResult.EMPTY;
-
-
-        code.append(expr.getComputation());
-        code.append("ret");
-        code.append(ollirTypes.toOllirType(retType));
-        code.append(SPACE);
-
-        code.append(expr.getCode());
-
-        code.append(END_STMT);
-
-        return code.toString();
-    }
-
-
-    private String visitParam(JmmNode node, Void unused) {
+        var expr = node.getNumChildren() > 0 ? exprVisitor.visit(node.getChild(0), code) : "";
 
-        var typeCode = ollirTypes.toOllirType(node.getChild(0));
-        var id = node.get("name");
+        code.ret(ollirTypes.toOllirType(retType), expr);
 
-        String code = id + typeCode;
-
-        return code;
+        return null;
     }
 
 
-    private String visitMethodDecl(JmmNode node, Void unused) {
-
-        StringBuilder code = new StringBuilder(".method ");
+    private Void visitMethodDecl(JmmNode node, OllirBuilder code) {
 
         boolean isPublic = node.getBoolean("isPublic", false);
-        if (isPublic) {
-            code.append("public ");
-        }
-
         boolean isStatic = node.getBoolean("isStatic", false);
-        if (isStatic) {
-            code.append("static ");
-        }
 
         var name = node.get("name");
         var params = table.getParameters(name);
 
         // varargs
-        if (!params.isEmpty()) {
-            var isVarargs = (boolean) params.getLast().getType().getObject("isVarargs");
-            if (isVarargs)
-                code.append("varargs ");
-        }
-
-        // name
-        code.append(name);
+        boolean isVarargs = !params.isEmpty() && (boolean) params.getLast().getType().getObject("isVarargs");
 
         // params
-        var paramsCode = params.stream()
-                .map(param -> param.getName() + ollirTypes.toOllirType(param.getType()))
-                .collect(Collectors.joining(", "));
-        code.append("(").append(paramsCode).append(")");
+        var paramsCode = new ArrayList<String>();
+        for (var param : params)
+            paramsCode.add(param.getName() + ollirTypes.toOllirType(param.getType()));
 
         // type
         var retType = ollirTypes.toOllirType(table.getReturnType(name));
-        code.append(retType);
-        code.append(L_BRACKET);
 
+        code.beginMethod(isPublic, isStatic, isVarargs, name, paramsCode, retType);
 
-        // rest of its children stmts
-        var stmtsCode = node.getChildren(STMT).stream()
-                .map(this::visit)
-                .collect(Collectors.joining("\n   ", "   ", ""));
+        int temps = exprVisitor.getNumTemps();
+        int reused = exprVisitor.getNumReused();
 
-        code.append(stmtsCode);
+        // rest of its children stmts
+        for (var stmt : node.getChildren(STMT))
+            visit(stmt, code);
 
         if (node.getChildren(RETURN_STMT).isEmpty())
-            code.append("ret.V").append(END_STMT);
+            code.ret(".V", "");
 
-        code.append(R_BRACKET);
-        code.append(NL);
+        code.endMethod();
 
-        return code.toString();
-    }
-
-
-    private String visitClass(JmmNode node, Void unused) {
+        tempCounts.put(name, new TempCount(exprVisitor.getNumTemps() - temps, exprVisitor.getNumReused() - reused));
 
-        StringBuilder code = new StringBuilder();
+        return null;
+    }
 
-        code.append(NL);
-        code.append(table.getClassName());
 
-        // super class
-        if (table.getSuper() != null) {
-            code.append(" extends ").append(table.getSuper());
-        }
+    private Void visitClass(JmmNode node, OllirBuilder code) {
 
-        code.append(L_BRACKET);
-        code.append(NL);
-        code.append(NL);
+        code.beginClass(table.getClassName(), table.getSuper());
 
         // fields
         for (var field : table.getFields()) {
-            code.append(".field public ");
-            code.append(field.getName());
-            code.append(ollirTypes.toOllirType(field.getType()));
-            code.append(END_STMT);
+            code.field(field.getName(), ollirTypes.toOllirType(field.getType()));
         }
 
-        code.append(buildConstructor());
-        code.append(NL);
+        code.constructor(table.getClassName());
 
         for (var child : node.getChildren(METHOD_DECL)) {
-            var result = visit(child);
-            code.append(result);
+            visit(child, code);
         }
 
-        code.append(R_BRACKET);
+        code.endClass();
 
-        return code.toString();
+        return null;
     }
 
-    private String buildConstructor() {
-
-        return """
-                .construct %s().V {
-                    invokespecial(this, "<init>").V;
-                }
-                """.formatted(table.getClassName());
-    }
-
-    private String visitProgram(JmmNode node, Void unused) {
-
-        StringBuilder code = new StringBuilder();
+    private Void visitProgram(JmmNode node, OllirBuilder code) {
 
         for (String importPath : table.getImports())
-            code.append("import ").append(importPath).append(END_STMT);
+            code.importDecl(importPath);
 
-        node.getChildren().stream()
-                .map(this::visit)
-                .forEach(code::append);
+        for (var child : node.getChildren())
+            visit(child, code);
 
-        return code.toString();
+        return null;
     }
 
     /**
-     * Default visitor. Visits every child node and return an empty string.
+     * Default visitor. Visits every child node.
      *
      * @param node
-     * @param unused
+     * @param code
      * @return
      */
-    private String defaultVisit(JmmNode node, Void unused) {
+    private Void defaultVisit(JmmNode node, OllirBuilder code) {
         for (var child : node.getChildren()) {
-            visit(child);
+            visit(child, code);
         }
 
-        return "";
+        return null;
     }
 }
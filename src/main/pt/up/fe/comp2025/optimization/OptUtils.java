@@ -1,7 +1,12 @@
 package pt.up.fe.comp2025.optimization;
 
+import org.specs.comp.ollir.Descriptor;
+import org.specs.comp.ollir.Method;
+import org.specs.comp.ollir.Operand;
+import org.specs.comp.ollir.VarScope;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2025.ast.TypeRegistry;
 import pt.up.fe.comp2025.ast.TypeUtils;
 import pt.up.fe.specs.util.collections.AccumulatorMap;
 import pt.up.fe.specs.util.exceptions.NotImplementedException;
@@ -13,6 +18,7 @@ import static pt.up.fe.comp2025.ast.Kind.TYPE;
  */
 public class OptUtils {
 
+    private static final String TEMP_PREFIX = "tmp";
 
     private final AccumulatorMap<String> temporaries;
     private int ifLabelNumber;
@@ -30,7 +36,34 @@ public class OptUtils {
 
     public String nextTemp() {
 
-        return nextTemp("tmp");
+        return nextTemp(TEMP_PREFIX);
+    }
+
+    /**
+     * @return true if the name is a temporary created by {@link #nextTemp()}
+     */
+    public static boolean isTemporary(String name) {
+        return name.startsWith(TEMP_PREFIX) && name.length() > TEMP_PREFIX.length()
+                && name.substring(TEMP_PREFIX.length()).chars().allMatch(Character::isDigit);
+    }
+
+    /**
+     * Adds a new temporary to the var table of an OLLIR method, in the register after the last one used.
+     *
+     * @return an operand of the new temporary
+     */
+    public static Operand newTemporary(Method method, org.specs.comp.ollir.type.Type type) {
+        var varTable = method.getVarTable();
+
+        int number = varTable.keySet().stream()
+                .filter(OptUtils::isTemporary)
+                .mapToInt(name -> Integer.parseInt(name.substring(TEMP_PREFIX.length())))
+                .max().orElse(-1) + 1;
+        int reg = varTable.values().stream().mapToInt(Descriptor::getVirtualReg).max().orElse(-1) + 1;
+
+        var name = TEMP_PREFIX + number;
+        varTable.put(name, new Descriptor(VarScope.LOCAL, reg, type));
+        return new Operand(name, type);
     }
 
     public String nextTemp(String prefix) {
@@ -60,26 +93,7 @@ public class OptUtils {
     }
 
     public String toOllirType(Type type) {
-        return toOllirType(type.getName(), type.isArray());
-    }
-
-    public String toOllirType(String type) {
-        var typeName = TypeUtils.getNameType(type);
-        var isArray = TypeUtils.getIsArrayType(type);
-        return toOllirType(typeName, Boolean.parseBoolean(isArray));
-    }
-
-    private String toOllirType(String typeName, boolean isArray) {
-
-        String type = (isArray ? ".array" : "") + "." + switch (typeName) {
-            case "int" -> "i32";
-            case "boolean" -> "bool";
-            case "String" -> "String";
-            case "void" -> "V";
-            default -> typeName;
-        };
-
-        return type;
+        return TypeRegistry.getOllirType(type);
     }
 
 
@@ -0,0 +1,229 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.specs.comp.ollir.*;
+import org.specs.comp.ollir.inst.*;
+import org.specs.comp.ollir.type.ArrayType;
+import org.specs.comp.ollir.type.ClassType;
+
+import java.util.*;
+
+/**
+ * Summary of the side effects of each method of an OLLIR class, so optimizations don't have to treat every call as
+ * one that can do anything.
+ * <p>
+ * The effects of a method are those of its own instructions and of the methods of the class it calls, found by
+ * iterating over the {@link CallGraph} until no summary grows. Calls to code of other classes (imports and the super
+ * class), and virtual calls that may run an override in a subclass, have unknown effects.
+ * <p>
+ * Stores to arrays the method allocates itself, and that it only indexes or returns, are not visible to the caller,
+ * so they are not array writes.
+ */
+public class SideEffects {
+
+    public enum Effect {
+        READS_FIELDS,
+        WRITES_FIELDS,
+        READS_ARRAYS,
+        WRITES_ARRAYS,
+        ALLOCATES,
+        // Exceptions (e.g., array indexes out of bounds, division by zero)
+        MAY_THROW,
+        // Loops and recursion
+        MAY_NOT_RETURN,
+        CALLS_UNKNOWN
+    }
+
+    private final ClassUnit classUnit;
+    private final CallGraph callGraph;
+    private final Map<String, Set<Effect>> summaries;
+    private final Set<Effect> constructorEffects;
+
+    public SideEffects(ClassUnit classUnit) {
+        this.classUnit = classUnit;
+        this.callGraph = new CallGraph(classUnit);
+        this.summaries = new LinkedHashMap<>();
+        this.constructorEffects = EnumSet.noneOf(Effect.class);
+
+        for (var method : callGraph.getMethods())
+            summaries.put(method.getMethodName(), EnumSet.noneOf(Effect.class));
+
+        // The constructor only calls the constructor of the super class
+        classUnit.getMethods().stream()
+                .filter(Method::isConstructMethod)
+                .forEach(constructor -> addEffects(constructor, constructorEffects));
+
+        boolean changed;
+        do {
+            changed = false;
+            for (var method : callGraph.getMethods())
+                changed |= addEffects(method, summaries.get(method.getMethodName()));
+        } while (changed);
+    }
+
+    /**
+     * @return the effects of the method of the class, which include the effects of the methods it calls
+     */
+    public Set<Effect> getEffects(String methodName) {
+        return summaries.getOrDefault(methodName, EnumSet.allOf(Effect.class));
+    }
+
+    /**
+     * @return the effects of a call made by the given method, all of them if the code that runs is not known
+     */
+    public Set<Effect> getEffects(Method caller, CallInstruction call) {
+        var effects = EnumSet.noneOf(Effect.class);
+        addCallEffects(caller, call, effects);
+
+        return effects.contains(Effect.CALLS_UNKNOWN) ? EnumSet.allOf(Effect.class) : effects;
+    }
+
+    /**
+     * @return true if calls with the same arguments (and the same contents of the fields and arrays they read) give
+     * the same result, and nothing else is changed by the call
+     */
+    public static boolean isPure(Set<Effect> effects) {
+        return !effects.contains(Effect.WRITES_FIELDS) && !effects.contains(Effect.WRITES_ARRAYS)
+                && !effects.contains(Effect.ALLOCATES) && !effects.contains(Effect.CALLS_UNKNOWN);
+    }
+
+    /**
+     * @return true if a call whose result is not used can be removed: it changes nothing, always returns, and
+     * cannot throw an exception
+     */
+    public static boolean isRemovable(Set<Effect> effects) {
+        return !effects.contains(Effect.WRITES_FIELDS) && !effects.contains(Effect.WRITES_ARRAYS)
+                && !effects.contains(Effect.MAY_THROW) && !effects.contains(Effect.MAY_NOT_RETURN)
+                && !effects.contains(Effect.CALLS_UNKNOWN);
+    }
+
+    /**
+     * Adds the effects of the instructions of the method to the set.
+     *
+     * @return true if the set changed
+     */
+    private boolean addEffects(Method method, Set<Effect> effects) {
+        var before = EnumSet.copyOf(effects);
+        var localArrays = getLocalArrays(method);
+
+        if (hasBackwardJump(method) || callGraph.isRecursive(method.getMethodName()))
+            effects.add(Effect.MAY_NOT_RETURN);
+
+        for (var inst : method.getInstructions()) {
+            var rhs = inst;
+            if (inst instanceof AssignInstruction assign) {
+                rhs = assign.getRhs();
+
+                if (assign.getDest() instanceof ArrayOperand element) {
+                    effects.add(Effect.MAY_THROW);
+                    if (!localArrays.contains(element.getName()))
+                        effects.add(Effect.WRITES_ARRAYS);
+                }
+            }
+
+            switch (rhs) {
+                case SingleOpInstruction single when single.getSingleOperand() instanceof ArrayOperand -> {
+                    effects.add(Effect.READS_ARRAYS);
+                    effects.add(Effect.MAY_THROW);
+                }
+                case BinaryOpInstruction binary when binary.getOperation().getOpType() == OperationType.DIV
+                        && !(binary.getRightOperand() instanceof LiteralElement literal
+                        && !literal.getLiteral().equals("0")) -> effects.add(Effect.MAY_THROW);
+                case GetFieldInstruction getField -> effects.add(Effect.READS_FIELDS);
+                case PutFieldInstruction putField -> effects.add(Effect.WRITES_FIELDS);
+                case CallInstruction call -> addCallEffects(method, call, effects);
+                default -> {
+                }
+            }
+        }
+
+        return !effects.equals(before);
+    }
+
+    private void addCallEffects(Method caller, CallInstruction call, Set<Effect> effects) {
+        switch (call) {
+            case ArrayLengthInstruction length -> effects.add(Effect.MAY_THROW);
+            case NewInstruction newInst -> {
+                effects.add(Effect.ALLOCATES);
+                // Negative sizes throw
+                if (newInst.getCaller().getType() instanceof ArrayType
+                        && !(newInst.getArguments().getFirst() instanceof LiteralElement))
+                    effects.add(Effect.MAY_THROW);
+            }
+            case InvokeSpecialInstruction special -> {
+                boolean isSuper = special.getCaller() instanceof Operand object && object.getName().equals("this");
+                boolean isThisClass = special.getCaller().getType() instanceof ClassType type
+                        && type.getName().equals(classUnit.getClassName());
+
+                if (isSuper && classUnit.getSuperClass() != null)
+                    effects.add(Effect.CALLS_UNKNOWN);
+                else if (!isSuper && isThisClass)
+                    effects.addAll(constructorEffects);
+                else if (!isSuper)
+                    effects.add(Effect.CALLS_UNKNOWN);
+            }
+            default -> {
+                var callee = callGraph.getCalledMethod(call);
+                if (callee == null || !callGraph.isExactTarget(caller, call, callee))
+                    effects.add(Effect.CALLS_UNKNOWN);
+                else
+                    effects.addAll(summaries.get(callee.getMethodName()));
+            }
+        }
+    }
+
+    /**
+     * @return the variables that always hold an array allocated by the method, and are only indexed or returned
+     */
+    private static Set<String> getLocalArrays(Method method) {
+        var arrays = new HashSet<String>();
+        var escaping = new HashSet<String>();
+
+        for (var inst : method.getInstructions()) {
+            var def = InstructionUtils.getDef(inst);
+            if (def != null) {
+                var rhs = ((AssignInstruction) inst).getRhs();
+                if (rhs instanceof NewInstruction && def.getType() instanceof ArrayType)
+                    arrays.add(def.getName());
+                else
+                    escaping.add(def.getName());
+            }
+
+            // Returning the array or reading its length doesn't let it escape, and neither does indexing it
+            var rhs = inst instanceof AssignInstruction assign ? assign.getRhs() : inst;
+            if (rhs instanceof ReturnInstruction || rhs instanceof ArrayLengthInstruction)
+                continue;
+
+            for (var use : InstructionUtils.getUses(inst))
+                if (!(use instanceof ArrayOperand))
+                    escaping.add(use.getName());
+        }
+
+        arrays.removeAll(escaping);
+        return arrays;
+    }
+
+    /**
+     * Every cycle of the control flow goes back at least once to a label at or before the jump, so methods without
+     * such jumps have no loops.
+     */
+    private static boolean hasBackwardJump(Method method) {
+        var instructions = method.getInstructions();
+        var positions = new IdentityHashMap<Instruction, Integer>();
+        for (int i = 0; i < instructions.size(); i++)
+            positions.put(instructions.get(i), i);
+
+        for (int i = 0; i < instructions.size(); i++) {
+            String label = switch (instructions.get(i)) {
+                case GotoInstruction jump -> jump.getLabel();
+                case CondBranchInstruction branch -> branch.getLabel();
+                default -> null;
+            };
+
+            var target = label == null ? null : method.getLabels().get(label);
+            if (target != null && positions.getOrDefault(target, -1) <= i)
+                return true;
+        }
+
+        return false;
+    }
+}
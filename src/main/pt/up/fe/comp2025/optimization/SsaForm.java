@@ -0,0 +1,558 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.specs.comp.ollir.Descriptor;
+import org.specs.comp.ollir.Method;
+import org.specs.comp.ollir.Operand;
+import org.specs.comp.ollir.VarScope;
+import org.specs.comp.ollir.inst.AssignInstruction;
+import org.specs.comp.ollir.inst.Instruction;
+import org.specs.comp.ollir.inst.SingleOpInstruction;
+import org.specs.comp.ollir.type.Type;
+
+import java.util.*;
+
+/**
+ * Static single assignment form of an OLLIR method.
+ * <p>
+ * The constructor renames the variables of the method so that each name is assigned once: phi functions are placed
+ * at the dominance frontiers of the assignments where the variable is live (pruned SSA) and the variables are
+ * renamed along the dominator tree (Cytron et al.). The first version of each variable keeps its
+ * name and holds the value at the entry of the method (the parameters, or an undefined value). Other versions are
+ * named "name$n". Phi functions are not OLLIR instructions, so they are kept in this object.
+ * <p>
+ * {@link #destruct()} leaves SSA form: versions of a variable that do not interfere with each other are coalesced
+ * back into a single name, and the remaining phi functions become copies in their predecessors (splitting critical
+ * edges). Without other changes in between, this gives back the original code.
+ * <p>
+ * In the -o pipeline, {@link CopyPropagation} runs on this form, right before it is left and the registers are
+ * allocated.
+ */
+public class SsaForm {
+
+    public static class Phi {
+
+        private final String variable;
+        private String target;
+        private final Map<BasicBlock, String> sources;
+
+        private Phi(String variable) {
+            this.variable = variable;
+            this.target = variable;
+            this.sources = new LinkedHashMap<>();
+        }
+
+        /**
+         * @return the name of the variable in the original code
+         */
+        public String getVariable() {
+            return variable;
+        }
+
+        public String getTarget() {
+            return target;
+        }
+
+        /**
+         * @return the version of the variable that comes from each predecessor of the block
+         */
+        public Map<BasicBlock, String> getSources() {
+            return sources;
+        }
+    }
+
+    private final Method method;
+    private final ControlFlowGraph cfg;
+    private final DominatorTree dominators;
+
+    private final Map<BasicBlock, List<Phi>> phis;
+    // Version -> variable of the original code
+    private final Map<String, String> variables;
+    private final Map<String, Type> types;
+    private final Set<String> usedNames;
+    private final Map<String, Integer> versionCounters;
+
+    private int numCopies;
+
+    public SsaForm(Method method) {
+        this.method = method;
+        this.cfg = new ControlFlowGraph(method);
+        this.dominators = new DominatorTree(cfg);
+        this.phis = new HashMap<>();
+        this.variables = new HashMap<>();
+        this.types = new HashMap<>();
+        this.usedNames = new HashSet<>(method.getVarTable().keySet());
+        this.versionCounters = new HashMap<>();
+        this.numCopies = 0;
+
+        findVariables();
+        placePhis();
+        rename(cfg.getEntry(), new HashMap<>());
+    }
+
+    public ControlFlowGraph getCfg() {
+        return cfg;
+    }
+
+    public DominatorTree getDominators() {
+        return dominators;
+    }
+
+    /**
+     * @return the phi functions at the start of the block
+     */
+    public List<Phi> getPhis(BasicBlock block) {
+        return phis.getOrDefault(block, List.of());
+    }
+
+    public int getNumPhis() {
+        return phis.values().stream().mapToInt(List::size).sum();
+    }
+
+    /**
+     * @return the number of copies inserted by {@link #destruct()}
+     */
+    public int getNumCopies() {
+        return numCopies;
+    }
+
+    /**
+     * @return the variable of the original code of a version, or null if the name is not a version of a variable
+     */
+    public String getVariable(String version) {
+        return variables.get(version);
+    }
+
+    /**
+     * @return the versions that are live at the same time as each version, for passes that must not make two versions
+     * of a variable live at once
+     */
+    public Map<String, Set<String>> getInterferences() {
+        return new Liveness().interferences();
+    }
+
+    private boolean isVariable(Operand operand) {
+        return variables.containsKey(operand.getName());
+    }
+
+    // Variables are the parameters and the names assigned in the method
+    private void findVariables() {
+        for (var param : method.getParams())
+            if (param instanceof Operand operand)
+                addVariable(operand);
+
+        for (var block : cfg.getBlocks()) {
+            for (var inst : block.getInstructions()) {
+                var def = InstructionUtils.getDef(inst);
+                if (def != null && !def.getName().equals("this"))
+                    addVariable(def);
+
+                for (var use : InstructionUtils.getUses(inst))
+                    usedNames.add(use.getName());
+            }
+        }
+    }
+
+    private void addVariable(Operand operand) {
+        variables.put(operand.getName(), operand.getName());
+        types.putIfAbsent(operand.getName(), operand.getType());
+        usedNames.add(operand.getName());
+    }
+
+    private void placePhis() {
+        var defBlocks = new LinkedHashMap<String, Set<BasicBlock>>();
+        var upwardUses = new HashMap<BasicBlock, Set<String>>();
+        var assigned = new HashMap<BasicBlock, Set<String>>();
+
+        for (var param : method.getParams())
+            if (param instanceof Operand operand)
+                defBlocks.computeIfAbsent(operand.getName(), key -> new LinkedHashSet<>()).add(cfg.getEntry());
+
+        for (var block : dominators.getReversePostorder()) {
+            var uses = new HashSet<String>();
+            var defs = new HashSet<String>();
+
+            for (var inst : block.getInstructions()) {
+                for (var use : InstructionUtils.getUses(inst))
+                    if (isVariable(use) && !defs.contains(use.getName()))
+                        uses.add(use.getName());
+
+                var def = InstructionUtils.getDef(inst);
+                if (def != null && isVariable(def)) {
+                    defs.add(def.getName());
+                    defBlocks.computeIfAbsent(def.getName(), key -> new LinkedHashSet<>()).add(block);
+                }
+            }
+
+            upwardUses.put(block, uses);
+            assigned.put(block, defs);
+        }
+
+        // Phi functions are only placed where the variable is live (pruned SSA), so no copies of undefined values
+        // are made when leaving SSA form
+        var liveIn = computeLiveIn(upwardUses, assigned);
+
+        for (var entry : defBlocks.entrySet()) {
+            var variable = entry.getKey();
+            var worklist = new ArrayDeque<>(entry.getValue());
+            var hasPhi = new HashSet<BasicBlock>();
+            var queued = new HashSet<>(worklist);
+
+            while (!worklist.isEmpty()) {
+                var block = worklist.poll();
+                for (var frontier : dominators.getFrontier(block)) {
+                    if (!liveIn.get(frontier).contains(variable) || !hasPhi.add(frontier))
+                        continue;
+
+                    phis.computeIfAbsent(frontier, key -> new ArrayList<>()).add(new Phi(variable));
+                    if (queued.add(frontier))
+                        worklist.add(frontier);
+                }
+            }
+        }
+    }
+
+    private Map<BasicBlock, Set<String>> computeLiveIn(Map<BasicBlock, Set<String>> upwardUses,
+                                                       Map<BasicBlock, Set<String>> assigned) {
+        var liveIn = new HashMap<BasicBlock, Set<String>>();
+        var order = dominators.getReversePostorder();
+
+        boolean changed;
+        do {
+            changed = false;
+            for (int i = order.size() - 1; i >= 0; i--) {
+                var block = order.get(i);
+
+                var in = new HashSet<String>();
+                for (var succ : block.getSuccessors())
+                    in.addAll(liveIn.getOrDefault(succ, Set.of()));
+                in.removeAll(assigned.get(block));
+                in.addAll(upwardUses.get(block));
+
+                if (!in.equals(liveIn.get(block))) {
+                    liveIn.put(block, in);
+                    changed = true;
+                }
+            }
+        } while (changed);
+
+        return liveIn;
+    }
+
+    private void rename(BasicBlock block, Map<String, Deque<String>> stacks) {
+        var pushed = new ArrayList<String>();
+
+        for (var phi : getPhis(block)) {
+            phi.target = newVersion(phi.variable);
+            push(stacks, phi.variable, phi.target, pushed);
+        }
+
+        for (var inst : block.getInstructions()) {
+            for (var use : InstructionUtils.getUses(inst))
+                if (isVariable(use))
+                    use.setName(current(stacks, use.getName()));
+
+            var def = InstructionUtils.getDef(inst);
+            if (def != null && isVariable(def)) {
+                var variable = def.getName();
+                def.setName(newVersion(variable));
+                push(stacks, variable, def.getName(), pushed);
+            }
+        }
+
+        for (var succ : block.getSuccessors())
+            for (var phi : getPhis(succ))
+                phi.sources.put(block, current(stacks, phi.variable));
+
+        for (var child : dominators.getChildren(block))
+            rename(child, stacks);
+
+        for (var variable : pushed)
+            stacks.get(variable).pop();
+    }
+
+    private void push(Map<String, Deque<String>> stacks, String variable, String version, List<String> pushed) {
+        stacks.computeIfAbsent(variable, key -> new ArrayDeque<>()).push(version);
+        pushed.add(variable);
+    }
+
+    private String current(Map<String, Deque<String>> stacks, String variable) {
+        var stack = stacks.get(variable);
+        return stack == null || stack.isEmpty() ? variable : stack.peek();
+    }
+
+    private String newVersion(String variable) {
+        String name;
+        do {
+            int version = versionCounters.merge(variable, 1, Integer::sum);
+            name = variable + "$" + version;
+        } while (usedNames.contains(name));
+
+        usedNames.add(name);
+        variables.put(name, variable);
+        return name;
+    }
+
+    /**
+     * Translates the method out of SSA form and writes the code back to the method. New variables are added to the
+     * var table with new registers.
+     */
+    public void destruct() {
+        var names = coalesce(new Liveness().interferences());
+
+        // Rename to the coalesced names. Unreachable blocks were not renamed, so they still use the original names.
+        for (var block : cfg.getBlocks()) {
+            for (var inst : block.getInstructions()) {
+                for (var use : InstructionUtils.getUses(inst))
+                    use.setName(names.getOrDefault(use.getName(), use.getName()));
+
+                var def = InstructionUtils.getDef(inst);
+                if (def != null)
+                    def.setName(names.getOrDefault(def.getName(), def.getName()));
+            }
+        }
+
+        // Replace the phi functions that are left by copies on the incoming edges
+        for (var block : new ArrayList<>(cfg.getBlocks())) {
+            var blockPhis = getPhis(block);
+            if (blockPhis.isEmpty())
+                continue;
+
+            for (var pred : new ArrayList<>(new LinkedHashSet<>(block.getPredecessors()))) {
+                if (!dominators.isReachable(pred))
+                    continue;
+
+                var copies = new LinkedHashMap<String, String>();
+                for (var phi : blockPhis) {
+                    var target = names.get(phi.target);
+                    var source = names.getOrDefault(phi.sources.get(pred), phi.sources.get(pred));
+                    if (!target.equals(source))
+                        copies.put(target, source);
+                }
+
+                if (copies.isEmpty())
+                    continue;
+
+                for (int slot = 0; slot < pred.getSuccessors().size(); slot++) {
+                    if (pred.getSuccessors().get(slot) != block)
+                        continue;
+
+                    var copyBlock = pred.getSuccessors().size() > 1 ? cfg.splitEdge(pred, slot) : pred;
+                    for (var copy : sequentialize(copies))
+                        cfg.insertAtEnd(copyBlock, copy);
+                }
+            }
+        }
+
+        phis.clear();
+        updateVarTable();
+        cfg.commit();
+    }
+
+    /**
+     * Groups versions of the same variable that do not interfere, starting with the ones related by phi functions.
+     *
+     * @return the name of each version after leaving SSA form
+     */
+    private Map<String, String> coalesce(Map<String, Set<String>> interferences) {
+        var classes = new HashMap<String, Set<String>>();
+        for (var version : variables.keySet())
+            classes.put(version, new HashSet<>(Set.of(version)));
+
+        for (var block : cfg.getBlocks())
+            for (var phi : getPhis(block))
+                for (var source : phi.sources.values())
+                    union(classes, interferences, phi.target, source);
+
+        // Versions of each variable, in order of creation
+        var versions = new TreeMap<String, List<String>>();
+        for (var entry : variables.entrySet())
+            versions.computeIfAbsent(entry.getValue(), key -> new ArrayList<>()).add(entry.getKey());
+
+        for (var variableVersions : versions.values()) {
+            variableVersions.sort(Comparator.comparingInt(this::versionNumber));
+            for (int i = 1; i < variableVersions.size(); i++)
+                for (int j = 0; j < i; j++)
+                    if (union(classes, interferences, variableVersions.get(j), variableVersions.get(i)))
+                        break;
+        }
+
+        // The class of the first version keeps the original name, the others keep the name of their first version
+        var names = new HashMap<String, String>();
+        for (var variableVersions : versions.values()) {
+            for (var version : variableVersions) {
+                if (names.containsKey(version))
+                    continue;
+
+                var representative = classes.get(version).stream()
+                        .min(Comparator.comparingInt(this::versionNumber))
+                        .orElseThrow();
+                for (var member : classes.get(version))
+                    names.put(member, representative);
+            }
+        }
+
+        return names;
+    }
+
+    private boolean union(Map<String, Set<String>> classes, Map<String, Set<String>> interferences, String a, String b) {
+        var classA = classes.get(a);
+        var classB = classes.get(b);
+
+        if (classA == classB)
+            return true;
+
+        for (var member : classA)
+            for (var other : interferences.getOrDefault(member, Set.of()))
+                if (classB.contains(other))
+                    return false;
+
+        classA.addAll(classB);
+        for (var member : classB)
+            classes.put(member, classA);
+
+        return true;
+    }
+
+    private int versionNumber(String version) {
+        var variable = variables.get(version);
+        return version.equals(variable) ? 0 : Integer.parseInt(version.substring(variable.length() + 1));
+    }
+
+    /**
+     * Orders the copies of a parallel copy so that no copy overwrites a value still to be read by another, using a
+     * new temporary to break cycles.
+     */
+    private List<Instruction> sequentialize(Map<String, String> parallelCopies) {
+        var pending = new LinkedHashMap<>(parallelCopies);
+        var copies = new ArrayList<Instruction>();
+
+        while (!pending.isEmpty()) {
+            var ready = pending.keySet().stream()
+                    .filter(target -> !pending.containsValue(target))
+                    .findFirst();
+
+            if (ready.isPresent()) {
+                var target = ready.get();
+                copies.add(newCopy(target, pending.remove(target)));
+                continue;
+            }
+
+            // Every target is read by another copy: save one of them in a temporary
+            var target = pending.keySet().iterator().next();
+            var temp = newVersion(variables.get(target));
+            copies.add(newCopy(temp, target));
+            pending.replaceAll((key, source) -> source.equals(target) ? temp : source);
+        }
+
+        numCopies += copies.size();
+        return copies;
+    }
+
+    private Instruction newCopy(String target, String source) {
+        var type = types.get(variables.get(target));
+        return new AssignInstruction(new Operand(target, type), type,
+                new SingleOpInstruction(new Operand(source, type)));
+    }
+
+    private void updateVarTable() {
+        var varTable = method.getVarTable();
+        int nextReg = varTable.values().stream().mapToInt(Descriptor::getVirtualReg).max().orElse(-1) + 1;
+
+        var names = new TreeSet<String>();
+        for (var block : cfg.getBlocks()) {
+            for (var inst : block.getInstructions()) {
+                InstructionUtils.getUses(inst).forEach(use -> names.add(use.getName()));
+                var def = InstructionUtils.getDef(inst);
+                if (def != null)
+                    names.add(def.getName());
+            }
+        }
+
+        for (var name : names) {
+            if (varTable.containsKey(name) || !variables.containsKey(name))
+                continue;
+
+            varTable.put(name, new Descriptor(VarScope.LOCAL, nextReg++, types.get(variables.get(name))));
+        }
+    }
+
+    /**
+     * Liveness of the versions in SSA form, used to find the versions that interfere.
+     */
+    private class Liveness {
+
+        private final Map<BasicBlock, Set<String>> liveOut = new HashMap<>();
+
+        Map<String, Set<String>> interferences() {
+            var liveIn = new HashMap<BasicBlock, Set<String>>();
+            var order = dominators.getReversePostorder();
+
+            boolean changed;
+            do {
+                changed = false;
+                for (int i = order.size() - 1; i >= 0; i--) {
+                    var block = order.get(i);
+
+                    var out = new HashSet<String>();
+                    for (var succ : block.getSuccessors()) {
+                        out.addAll(liveIn.getOrDefault(succ, Set.of()));
+                        for (var phi : getPhis(succ))
+                            out.add(phi.sources.get(block));
+                    }
+                    liveOut.put(block, out);
+
+                    var in = new HashSet<>(out);
+                    scanBackwards(block, in, null);
+                    for (var phi : getPhis(block))
+                        in.remove(phi.target);
+
+                    if (!in.equals(liveIn.get(block))) {
+                        liveIn.put(block, in);
+                        changed = true;
+                    }
+                }
+            } while (changed);
+
+            var interferences = new HashMap<String, Set<String>>();
+            for (var block : order) {
+                var live = new HashSet<>(liveOut.get(block));
+                scanBackwards(block, live, interferences);
+
+                var targets = getPhis(block).stream().map(Phi::getTarget).toList();
+                live.addAll(targets);
+                for (var target : targets)
+                    addInterferences(interferences, target, live);
+            }
+
+            return interferences;
+        }
+
+        // Updates the live set from the end to the start of the block, recording the interferences of each definition
+        private void scanBackwards(BasicBlock block, Set<String> live, Map<String, Set<String>> interferences) {
+            var instructions = block.getInstructions();
+            for (int i = instructions.size() - 1; i >= 0; i--) {
+                var inst = instructions.get(i);
+
+                var def = InstructionUtils.getDef(inst);
+                if (def != null && isVariable(def)) {
+                    live.remove(def.getName());
+                    if (interferences != null)
+                        addInterferences(interferences, def.getName(), live);
+                }
+
+                for (var use : InstructionUtils.getUses(inst))
+                    if (isVariable(use))
+                        live.add(use.getName());
+            }
+        }
+
+        private void addInterferences(Map<String, Set<String>> interferences, String version, Set<String> live) {
+            for (var other : live) {
+                if (other.equals(version))
+                    continue;
+                interferences.computeIfAbsent(version, key -> new HashSet<>()).add(other);
+                interferences.computeIfAbsent(other, key -> new HashSet<>()).add(version);
+            }
+        }
+    }
+}
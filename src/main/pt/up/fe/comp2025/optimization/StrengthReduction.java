@@ -0,0 +1,401 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.specs.comp.ollir.*;
+import org.specs.comp.ollir.inst.*;
+import org.specs.comp.ollir.type.Type;
+
+import java.util.*;
+
+/**
+ * Replaces expensive operations of an OLLIR method by cheaper ones:
+ * <ul>
+ *     <li>in a loop, "t := i * k", where i is an induction variable ("i := i + c" is its only assignment in the loop)
+ *     and k does not change in the loop, becomes a copy of a new variable that starts as i * k in the preheader and
+ *     is incremented by c * k after each increment of i;</li>
+ *     <li>chains of additions and subtractions of constants that end in the variable they started from, such as
+ *     "t := i + 1; i := t + 2", become a single "i := i + 3", which the backend generates as an iinc;</li>
+ *     <li>multiplications by a power of two become left shifts.</li>
+ * </ul>
+ * Divisions by a power of two are kept: the division rounds towards zero and the arithmetic shift rounds down, so
+ * they only give the same result for dividends that are not negative.
+ */
+public class StrengthReduction {
+
+    private final Method method;
+
+    public StrengthReduction(Method method) {
+        this.method = method;
+    }
+
+    /**
+     * @return the number of instructions replaced by cheaper ones
+     */
+    public int apply() {
+        // Combined increments are found as induction variables
+        int reduced = combineIncrements();
+        reduced += reduceInductionVariables();
+        reduced += replaceMultiplications();
+
+        return reduced;
+    }
+
+    private int reduceInductionVariables() {
+        int reduced = 0;
+
+        // Reducing a loop can split an edge, so the loops are found again after each change
+        boolean changed;
+        do {
+            changed = false;
+
+            var cfg = new ControlFlowGraph(method);
+            var dominators = new DominatorTree(cfg);
+
+            for (var loop : NaturalLoop.find(cfg, dominators)) {
+                int count = reduce(loop, cfg);
+                if (count > 0) {
+                    reduced += count;
+                    changed = true;
+                    break;
+                }
+            }
+
+            if (changed)
+                cfg.commit();
+        } while (changed);
+
+        return reduced;
+    }
+
+    /**
+     * @return the number of multiplications of the loop replaced by copies
+     */
+    private int reduce(NaturalLoop loop, ControlFlowGraph cfg) {
+        var defCounts = new HashMap<String, Integer>();
+        for (var block : loop.getBody())
+            for (var inst : block.getInstructions()) {
+                var def = InstructionUtils.getDef(inst);
+                if (def != null)
+                    defCounts.merge(def.getName(), 1, Integer::sum);
+            }
+
+        // Induction variables, with their increment
+        var increments = new HashMap<String, Integer>();
+        var incrementInsts = new HashMap<String, AssignInstruction>();
+        for (var block : loop.getBody())
+            for (var inst : block.getInstructions()) {
+                var def = InstructionUtils.getDef(inst);
+                if (def == null || defCounts.get(def.getName()) != 1)
+                    continue;
+
+                var step = getIncrement((AssignInstruction) inst, def.getName());
+                if (step != null) {
+                    increments.put(def.getName(), step);
+                    incrementInsts.put(def.getName(), (AssignInstruction) inst);
+                }
+            }
+
+        if (increments.isEmpty())
+            return 0;
+
+        // Multiplications of an induction variable by a value that does not change in the loop
+        var candidates = new ArrayList<AssignInstruction>();
+        for (var block : loop.getBody())
+            for (var inst : block.getInstructions())
+                if (inst instanceof AssignInstruction assign && getFactors(assign, increments, defCounts) != null)
+                    candidates.add(assign);
+
+        if (candidates.isEmpty())
+            return 0;
+
+        var preheader = loop.getPreheader(cfg);
+        if (preheader == null)
+            return 0;
+
+        // Variables that hold each product, shared by the multiplications of the same operands
+        var products = new HashMap<String, Operand>();
+
+        for (var assign : candidates) {
+            var factors = getFactors(assign, increments, defCounts);
+            var variable = (Operand) factors.getFirst();
+            var factor = factors.getLast();
+            var type = assign.getDest().getType();
+
+            var key = variable.getName() + " "
+                    + (factor instanceof LiteralElement literal ? literal.getLiteral() : ((Operand) factor).getName());
+            var product = products.get(key);
+            if (product == null) {
+                product = OptUtils.newTemporary(method, type);
+                products.put(key, product);
+
+                // The product starts with the value of the induction variable when entering the loop
+                cfg.insertAtEnd(preheader, new AssignInstruction(copy(product), type,
+                        new BinaryOpInstruction(copy(variable), new Operation(OperationType.MUL, type),
+                                copy(factor))));
+
+                // ...and follows each increment of the induction variable
+                var step = getStep(increments.get(variable.getName()), factor, preheader, cfg, type);
+                var increment = incrementInsts.get(variable.getName());
+                for (var block : loop.getBody()) {
+                    int index = block.getInstructions().indexOf(increment);
+                    if (index != -1)
+                        block.getInstructions().add(index + 1, new AssignInstruction(copy(product), type,
+                                new BinaryOpInstruction(copy(product), new Operation(OperationType.ADD, type),
+                                        copy(step))));
+                }
+            }
+
+            for (var block : loop.getBody()) {
+                var instructions = block.getInstructions();
+                int index = instructions.indexOf(assign);
+                if (index != -1)
+                    instructions.set(index, new AssignInstruction(assign.getDest(), type,
+                            new SingleOpInstruction(copy(product))));
+            }
+        }
+
+        return candidates.size();
+    }
+
+    /**
+     * @return c if the instruction is "name := name + c", "name := c + name" or "name := name - (-c)", or null
+     */
+    private Integer getIncrement(AssignInstruction assign, String name) {
+        if (!(assign.getRhs() instanceof BinaryOpInstruction binary))
+            return null;
+
+        var left = binary.getLeftOperand();
+        var right = binary.getRightOperand();
+
+        return switch (binary.getOperation().getOpType()) {
+            case ADD -> {
+                if (isVariable(left, name) && right instanceof LiteralElement literal)
+                    yield Integer.parseInt(literal.getLiteral());
+                if (isVariable(right, name) && left instanceof LiteralElement literal)
+                    yield Integer.parseInt(literal.getLiteral());
+                yield null;
+            }
+            case SUB -> isVariable(left, name) && right instanceof LiteralElement literal
+                    ? -Integer.parseInt(literal.getLiteral()) : null;
+            default -> null;
+        };
+    }
+
+    /**
+     * @return the induction variable and the factor it is multiplied by, or null if the instruction is not a
+     * multiplication of an induction variable by a value that does not change in the loop
+     */
+    private List<Element> getFactors(AssignInstruction assign, Map<String, Integer> increments,
+                                     Map<String, Integer> defCounts) {
+        if (!(assign.getRhs() instanceof BinaryOpInstruction binary)
+                || binary.getOperation().getOpType() != OperationType.MUL)
+            return null;
+
+        var left = binary.getLeftOperand();
+        var right = binary.getRightOperand();
+
+        for (var pair : List.of(List.of(left, right), List.of(right, left))) {
+            var variable = pair.getFirst();
+            var factor = pair.getLast();
+
+            if (!(variable instanceof Operand operand) || variable instanceof ArrayOperand
+                    || !increments.containsKey(operand.getName()))
+                continue;
+
+            if (factor instanceof LiteralElement
+                    || factor instanceof Operand other && !(other instanceof ArrayOperand)
+                    && !defCounts.containsKey(other.getName()))
+                return pair;
+        }
+
+        return null;
+    }
+
+    /**
+     * @return the value added to a product when its induction variable is incremented
+     */
+    private Element getStep(int increment, Element factor, BasicBlock preheader, ControlFlowGraph cfg, Type type) {
+        if (factor instanceof LiteralElement literal)
+            return new LiteralElement(String.valueOf(increment * Integer.parseInt(literal.getLiteral())), type);
+
+        if (increment == 1)
+            return copy(factor);
+
+        var step = OptUtils.newTemporary(method, type);
+        cfg.insertAtEnd(preheader, new AssignInstruction(copy(step), type,
+                new BinaryOpInstruction(copy(factor), new Operation(OperationType.MUL, type),
+                        new LiteralElement(String.valueOf(increment), type))));
+        return copy(step);
+    }
+
+    private int combineIncrements() {
+        var cfg = new ControlFlowGraph(method);
+
+        var useCounts = new HashMap<String, Integer>();
+        for (var block : cfg.getBlocks())
+            for (var inst : block.getInstructions())
+                for (var use : InstructionUtils.getUses(inst))
+                    useCounts.merge(use.getName(), 1, Integer::sum);
+
+        int combined = 0;
+        for (var block : cfg.getBlocks()) {
+            var instructions = block.getInstructions();
+
+            for (int i = 0; i < instructions.size(); i++) {
+                var def = InstructionUtils.getDef(instructions.get(i));
+                if (def == null)
+                    continue;
+
+                var combinedInst = combine((AssignInstruction) instructions.get(i), def, instructions, i, useCounts);
+                if (combinedInst != null) {
+                    instructions.set(i, combinedInst);
+                    combined++;
+                }
+            }
+        }
+
+        // The temporaries of the chains are no longer used, and are removed by the dead code elimination
+        if (combined > 0)
+            cfg.commit();
+
+        return combined;
+    }
+
+    /**
+     * Follows the chain of temporaries that computes the value assigned to a variable, adding up the constants.
+     *
+     * @return "name := name + c" if the chain starts from the same variable, or null
+     */
+    private Instruction combine(AssignInstruction assign, Operand dest, List<Instruction> instructions, int index,
+                                Map<String, Integer> useCounts) {
+        var name = dest.getName();
+
+        int total = 0;
+        var current = assign;
+        int position = index;
+
+        while (true) {
+            Element source;
+            var rhs = current.getRhs();
+            if (rhs instanceof SingleOpInstruction single) {
+                source = single.getSingleOperand();
+            } else {
+                var increment = getSource(rhs);
+                if (increment == null)
+                    return null;
+                source = increment.getKey();
+                total += increment.getValue();
+            }
+
+            if (!(source instanceof Operand operand) || source instanceof ArrayOperand)
+                return null;
+
+            if (operand.getName().equals(name)) {
+                // The chain must have at least one temporary, and the variable must not change along it
+                if (current == assign)
+                    return null;
+                for (int i = position + 1; i < index; i++) {
+                    var def = InstructionUtils.getDef(instructions.get(i));
+                    if (def != null && def.getName().equals(name))
+                        return null;
+                }
+                break;
+            }
+
+            if (!OptUtils.isTemporary(operand.getName()) || useCounts.getOrDefault(operand.getName(), 0) != 1)
+                return null;
+
+            // Closest assignment to the temporary before the current instruction
+            AssignInstruction previous = null;
+            for (int i = position - 1; i >= 0 && previous == null; i--) {
+                var def = InstructionUtils.getDef(instructions.get(i));
+                if (def != null && def.getName().equals(operand.getName())) {
+                    previous = (AssignInstruction) instructions.get(i);
+                    position = i;
+                }
+            }
+
+            if (previous == null)
+                return null;
+            current = previous;
+        }
+
+        if (total == 0)
+            return null;
+
+        var type = dest.getType();
+        var opType = total > 0 ? OperationType.ADD : OperationType.SUB;
+        return new AssignInstruction(dest, assign.getTypeOfAssign(), new BinaryOpInstruction(copy(dest),
+                new Operation(opType, type), new LiteralElement(String.valueOf(Math.abs(total)), type)));
+    }
+
+    /**
+     * @return the operand and the constant added to it, if the instruction is an addition or subtraction of a
+     * constant, or null
+     */
+    private Map.Entry<Element, Integer> getSource(Instruction rhs) {
+        if (!(rhs instanceof BinaryOpInstruction binary))
+            return null;
+
+        var left = binary.getLeftOperand();
+        var right = binary.getRightOperand();
+
+        return switch (binary.getOperation().getOpType()) {
+            case ADD -> {
+                if (right instanceof LiteralElement literal && !(left instanceof LiteralElement))
+                    yield Map.entry(left, Integer.parseInt(literal.getLiteral()));
+                if (left instanceof LiteralElement literal && !(right instanceof LiteralElement))
+                    yield Map.entry(right, Integer.parseInt(literal.getLiteral()));
+                yield null;
+            }
+            case SUB -> right instanceof LiteralElement literal && !(left instanceof LiteralElement)
+                    ? Map.entry(left, -Integer.parseInt(literal.getLiteral())) : null;
+            default -> null;
+        };
+    }
+
+    private int replaceMultiplications() {
+        int replaced = 0;
+
+        for (var inst : method.getInstructions()) {
+            if (!(inst instanceof AssignInstruction assign) || !(assign.getRhs() instanceof BinaryOpInstruction binary)
+                    || binary.getOperation().getOpType() != OperationType.MUL)
+                continue;
+
+            var left = binary.getLeftOperand();
+            var right = binary.getRightOperand();
+
+            // The constant becomes the number of bits to shift
+            var variable = left instanceof LiteralElement ? right : left;
+            if (!((variable == left ? right : left) instanceof LiteralElement literal))
+                continue;
+
+            int factor = Integer.parseInt(literal.getLiteral());
+            if (variable instanceof LiteralElement || factor < 2 || Integer.bitCount(factor) != 1)
+                continue;
+
+            binary.setLeftOperand(variable);
+            binary.getOperation().setOpType(OperationType.SHL);
+            binary.setRightOperand(new LiteralElement(String.valueOf(Integer.numberOfTrailingZeros(factor)),
+                    literal.getType()));
+            replaced++;
+        }
+
+        return replaced;
+    }
+
+    private boolean isVariable(Element element, String name) {
+        return element instanceof Operand operand && !(operand instanceof ArrayOperand)
+                && operand.getName().equals(name);
+    }
+
+    /**
+     * Operands are not shared between instructions, since the passes rename them in place.
+     */
+    private Element copy(Element element) {
+        if (element instanceof LiteralElement literal)
+            return new LiteralElement(literal.getLiteral(), literal.getType());
+
+        var operand = (Operand) element;
+        return new Operand(operand.getName(), operand.getType());
+    }
+}
@@ -0,0 +1,138 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.specs.comp.ollir.*;
+import org.specs.comp.ollir.inst.*;
+
+import java.util.*;
+
+/**
+ * Turns calls of an OLLIR method to itself in tail position (the call is followed by a return of its result) into
+ * a loop: the arguments are assigned to the parameters and the code jumps back to the start of the method, so the
+ * recursion does not use a frame of the JVM stack per level.
+ * <p>
+ * Only calls on "this" are changed. The class is assumed to be the one whose method runs, as in the other
+ * optimizations of the compiler that see a single class: a subclass that overrides the method would no longer be
+ * called by the recursion.
+ */
+public class TailRecursionElimination {
+
+    private static final String ENTRY_LABEL = "tailrec";
+
+    private final Method method;
+    private final CallGraph callGraph;
+
+    public TailRecursionElimination(Method method, CallGraph callGraph) {
+        this.method = method;
+        this.callGraph = callGraph;
+    }
+
+    /**
+     * @return the number of calls replaced by jumps
+     */
+    public int apply() {
+        var instructions = method.getInstructions();
+        var labels = method.getLabels();
+
+        var entryLabel = ENTRY_LABEL;
+        while (labels.containsKey(entryLabel))
+            entryLabel += "_";
+
+        int eliminated = 0;
+        for (int i = 0; i < instructions.size() - 1; i++) {
+            var callInst = instructions.get(i);
+            if (!isTailCall(callInst, instructions.get(i + 1)))
+                continue;
+
+            var code = assignParameters(CallGraph.getCall(callInst));
+            code.add(new GotoInstruction(entryLabel));
+
+            // Labels of the call go to the first instruction that replaces it. The return is kept, since other
+            // code can jump to it, and is removed with the dead code if it cannot be reached.
+            var first = code.getFirst();
+            labels.replaceAll((label, inst) -> inst == callInst ? first : inst);
+
+            instructions.remove(i);
+            instructions.addAll(i, code);
+            i += code.size() - 1;
+            eliminated++;
+        }
+
+        // The jumps make the first instruction a loop header, which ControlFlowGraph keeps out of the entry block
+        if (eliminated > 0) {
+            labels.put(entryLabel, instructions.getFirst());
+            new ControlFlowGraph(method).commit();
+        }
+
+        return eliminated;
+    }
+
+    private boolean isTailCall(Instruction inst, Instruction next) {
+        var call = CallGraph.getCall(inst);
+        if (call == null || callGraph.getCalledMethod(call) != method)
+            return false;
+
+        if (!method.isStaticMethod() && !(call.getCaller() instanceof Operand caller
+                && caller.getName().equals("this")))
+            return false;
+
+        if (!(next instanceof ReturnInstruction ret))
+            return false;
+
+        // The value returned must be the result of the call
+        if (!ret.hasReturnValue())
+            return true;
+
+        return inst instanceof AssignInstruction assign && InstructionUtils.getDef(assign) != null
+                && ret.getOperand().get() instanceof Operand operand && !(operand instanceof ArrayOperand)
+                && operand.getName().equals(InstructionUtils.getDef(assign).getName());
+    }
+
+    /**
+     * The parameters are assigned in order, so arguments that read parameters are saved to temporaries first, as
+     * those parameters can be assigned before the argument.
+     */
+    private List<Instruction> assignParameters(CallInstruction call) {
+        var code = new ArrayList<Instruction>();
+
+        var paramNames = new HashSet<String>();
+        for (var param : method.getParams())
+            paramNames.add(((Operand) param).getName());
+
+        var params = method.getParams();
+        var values = new ArrayList<Element>();
+        for (int i = 0; i < params.size(); i++) {
+            var arg = call.getArguments().get(i);
+            boolean readsParam = !isParam(arg, (Operand) params.get(i)) && arg instanceof Operand operand
+                    && InstructionUtils.getUses(new SingleOpInstruction(operand)).stream()
+                    .anyMatch(use -> paramNames.contains(use.getName()));
+
+            if (!readsParam) {
+                values.add(arg);
+                continue;
+            }
+
+            var temp = OptUtils.newTemporary(method, arg.getType());
+            code.add(new AssignInstruction(temp, arg.getType(), new SingleOpInstruction(arg)));
+            values.add(new Operand(temp.getName(), temp.getType()));
+        }
+
+        for (int i = 0; i < params.size(); i++) {
+            var param = (Operand) params.get(i);
+            var value = values.get(i);
+
+            // A parameter passed in its own position keeps its value
+            if (isParam(value, param))
+                continue;
+
+            code.add(new AssignInstruction(new Operand(param.getName(), param.getType()), param.getType(),
+                    new SingleOpInstruction(value)));
+        }
+
+        return code;
+    }
+
+    private boolean isParam(Element element, Operand param) {
+        return element instanceof Operand operand && !(operand instanceof ArrayOperand)
+                && operand.getName().equals(param.getName());
+    }
+}
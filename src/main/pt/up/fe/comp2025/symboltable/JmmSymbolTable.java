@@ -2,6 +2,7 @@ package pt.up.fe.comp2025.symboltable;
 
 import pt.up.fe.comp.jmm.analysis.table.Symbol;
 import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp2025.ast.TypeRegistry;
 import pt.up.fe.comp2025.ast.TypeUtils;
 import pt.up.fe.specs.util.SpecsCheck;
 import pt.up.fe.specs.util.exceptions.NotImplementedException;
@@ -20,6 +21,11 @@ public class JmmSymbolTable extends AJmmSymbolTable {
     private List<String> imports;
     private String superClassName;
 
+    // Indexes built once from the lists above, so that names can be resolved in constant time
+    private final Map<String, Map<String, Symbol>> paramIndex;
+    private final Map<String, Map<String, Symbol>> localIndex;
+    private final Map<String, Symbol> fieldIndex;
+    private final Map<String, String> importIndex;
 
     public JmmSymbolTable(String className,
                           List<String> methods,
@@ -38,6 +44,33 @@ public class JmmSymbolTable extends AJmmSymbolTable {
         this.fields = fields;
         this.imports = imports;
         this.superClassName = superClassName;
+
+        this.paramIndex = new HashMap<>();
+        params.forEach((method, symbols) -> paramIndex.put(method, buildIndex(symbols)));
+        this.localIndex = new HashMap<>();
+        locals.forEach((method, symbols) -> localIndex.put(method, buildIndex(symbols)));
+        this.fieldIndex = buildIndex(fields);
+
+        // Imports can be referred to by their full path or by the name of the class (last part of the path)
+        this.importIndex = new HashMap<>();
+        for (var importPath : imports) {
+            importIndex.putIfAbsent(importPath, importPath);
+            importIndex.putIfAbsent(importPath.substring(importPath.lastIndexOf('.') + 1), importPath);
+        }
+
+        // Class types of the program are interned up front
+        TypeRegistry.get(className, false);
+        imports.forEach(importPath -> TypeRegistry.get(importPath.substring(importPath.lastIndexOf('.') + 1), false));
+    }
+
+    private static Map<String, Symbol> buildIndex(List<Symbol> symbols) {
+        var index = new HashMap<String, Symbol>();
+
+        // In case of duplicates (already reported), the first declaration wins
+        for (var symbol : symbols)
+            index.putIfAbsent(symbol.getName(), symbol);
+
+        return index;
     }
 
     @Override
@@ -83,6 +116,69 @@ public class JmmSymbolTable extends AJmmSymbolTable {
         return locals.get(methodSignature);
     }
 
+    /**
+     * @return the local variable with the given name declared in the method, or null if there is none
+     */
+    public Symbol getLocalVariable(String methodSignature, String name) {
+        var index = localIndex.get(methodSignature);
+        return index != null ? index.get(name) : null;
+    }
+
+    /**
+     * @return the parameter with the given name of the method, or null if there is none
+     */
+    public Symbol getParameter(String methodSignature, String name) {
+        var index = paramIndex.get(methodSignature);
+        return index != null ? index.get(name) : null;
+    }
+
+    /**
+     * @return the field with the given name, or null if there is none
+     */
+    public Symbol getField(String name) {
+        return fieldIndex.get(name);
+    }
+
+    /**
+     * @return the path of the import with the given path or class name, or null if there is none
+     */
+    public String getImport(String name) {
+        return importIndex.get(name);
+    }
+
+    /**
+     * Resolves a variable in the scope of a method, looking for a local variable, then a parameter and then a field.
+     *
+     * @param methodSignature the method where the variable is used, or null if outside a method
+     * @param name            the name of the variable
+     * @return the symbol of the variable, or null if it is not declared
+     */
+    public Symbol resolveVariable(String methodSignature, String name) {
+        var local = getLocalVariable(methodSignature, name);
+        if (local != null)
+            return local;
+
+        var param = getParameter(methodSignature, name);
+        if (param != null)
+            return param;
+
+        return getField(name);
+    }
+
+    public boolean isLocalVariable(String methodSignature, String name) {
+        return getLocalVariable(methodSignature, name) != null;
+    }
+
+    /**
+     * @return true if the name refers to a field inside the method, i.e., the field is not shadowed by a local
+     * variable or a parameter
+     */
+    public boolean isField(String methodSignature, String name) {
+        return getLocalVariable(methodSignature, name) == null
+                && getParameter(methodSignature, name) == null
+                && getField(name) != null;
+    }
+
     @Override
     public String toString() {
         return print();
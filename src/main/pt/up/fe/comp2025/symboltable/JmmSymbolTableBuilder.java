@@ -106,7 +106,7 @@ public class JmmSymbolTableBuilder {
                     map.put(name, returnType);
 
             } else if (method.getKind().equals("MainMethodDecl")) {
-                map.put(name, new Type("void", false));
+                map.put(name, TypeUtils.newVoidType());
             }
         }
 
@@ -143,7 +143,8 @@ public class JmmSymbolTableBuilder {
 
             // Special case for main method
             if (method.getKind().equals("MainMethodDecl")) {
-                var paramType = TypeUtils.newArrayType("String");
+                // A new instance, since the canonical String[] of TypeRegistry must not be changed
+                var paramType = new Type("String", true);
                 paramType.putObject("isVarargs", false);
                 params.add(new Symbol(paramType, method.get("argName")));
             }
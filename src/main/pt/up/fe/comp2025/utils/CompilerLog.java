@@ -0,0 +1,124 @@
+package pt.up.fe.comp2025.utils;
+
+import pt.up.fe.comp2025.CompilerConfig;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Messages and dumps of the stages of the compiler, controlled by the options of {@link CompilerConfig}.
+ * <p>
+ * Messages are only built when their level is enabled, so the callers pass a Supplier instead of the message. Dumps
+ * of whole programs (the AST, OLLIR and Jasmin code) are only written for the stages asked for, to files in the dump
+ * directory, by a background thread. {@link #flush()} waits for the files still being written.
+ */
+public class CompilerLog {
+
+    public enum Level {
+        OFF,
+        ERROR,
+        INFO,
+        DEBUG
+    }
+
+    public enum Dump {
+        AST("ast.txt"),
+        OLLIR("ollir"),
+        JASMIN("j");
+
+        private final String extension;
+
+        Dump(String extension) {
+            this.extension = extension;
+        }
+    }
+
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(task -> {
+        var thread = new Thread(task, "compiler-dumps");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final Queue<Future<?>> PENDING = new ConcurrentLinkedQueue<>();
+
+    private final Level level;
+    private final Set<Dump> dumps;
+    private final Path dumpDir;
+
+    public CompilerLog(Level level, Set<Dump> dumps, Path dumpDir) {
+        this.level = level;
+        this.dumps = dumps;
+        this.dumpDir = dumpDir;
+    }
+
+    public static CompilerLog of(Map<String, String> config) {
+        return new CompilerLog(CompilerConfig.getLogLevel(config), CompilerConfig.getDumps(config),
+                CompilerConfig.getDumpDir(config));
+    }
+
+    public boolean isEnabled(Level level) {
+        return level != Level.OFF && level.compareTo(this.level) <= 0;
+    }
+
+    public void error(Supplier<String> message) {
+        log(Level.ERROR, message);
+    }
+
+    public void info(Supplier<String> message) {
+        log(Level.INFO, message);
+    }
+
+    public void debug(Supplier<String> message) {
+        log(Level.DEBUG, message);
+    }
+
+    private void log(Level level, Supplier<String> message) {
+        if (isEnabled(level))
+            System.out.println(message.get());
+    }
+
+    /**
+     * Writes the code of a stage to the file "name.extension" of the dump directory, if that stage is dumped.
+     * <p>
+     * The code is built before returning, since later stages can change what it comes from (e.g., the AST).
+     */
+    public void dump(Dump stage, String name, Supplier<String> code) {
+        if (!dumps.contains(stage))
+            return;
+
+        var file = dumpDir.resolve(name + "." + stage.extension);
+        var content = code.get();
+
+        PENDING.add(WRITER.submit(() -> {
+            try {
+                Files.createDirectories(dumpDir);
+                Files.writeString(file, content);
+            } catch (IOException e) {
+                error(() -> "Could not write dump '" + file + "': " + e.getMessage());
+            }
+        }));
+    }
+
+    /**
+     * Waits for the dumps that are still being written.
+     */
+    public static void flush() {
+        Future<?> pending;
+        while ((pending = PENDING.poll()) != null) {
+            try {
+                pending.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+    }
+}
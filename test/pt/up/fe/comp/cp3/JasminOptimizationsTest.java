@@ -14,13 +14,24 @@
 package pt.up.fe.comp.cp3;
 
 import org.junit.Test;
+import org.specs.comp.ollir.LiteralElement;
+import org.specs.comp.ollir.Operand;
+import org.specs.comp.ollir.inst.AssignInstruction;
+import org.specs.comp.ollir.inst.CondBranchInstruction;
+import org.specs.comp.ollir.inst.OpInstruction;
+import org.specs.comp.ollir.inst.PutFieldInstruction;
+import org.specs.comp.ollir.inst.SingleOpInstruction;
 import pt.up.fe.comp.CpUtils;
 import pt.up.fe.comp.TestUtils;
 import pt.up.fe.comp.jmm.jasmin.JasminResult;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2025.optimization.InstructionUtils;
+import pt.up.fe.comp2025.optimization.JmmOptimizationImpl;
+import pt.up.fe.comp2025.optimization.SsaForm;
 import pt.up.fe.specs.util.SpecsIo;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 
 public class JasminOptimizationsTest {
@@ -29,6 +40,24 @@ public class JasminOptimizationsTest {
         return TestUtils.optimize(SpecsIo.getResource("pt/up/fe/comp/cp3/optimizations/" + filename));
     }
 
+    static OllirResult getOllirResultOpt(String filename) {
+        Map<String, String> config = new HashMap<>();
+        config.put("optimize", "true");
+        return CpUtils.getOllirResult(SpecsIo.getResource("pt/up/fe/comp/cp3/optimizations/" + filename), config, true);
+    }
+
+    /**
+     * @return the OLLIR generated from the AST optimized with -o, before the optimizations of the OLLIR code
+     */
+    static OllirResult getOllirResultAstOpt(String filename) {
+        Map<String, String> config = new HashMap<>();
+        config.put("optimize", "true");
+        var optimization = new JmmOptimizationImpl();
+        var semanticsResult = TestUtils.analyse(SpecsIo.getResource("pt/up/fe/comp/cp3/optimizations/" + filename),
+                config);
+        return optimization.toOllir(optimization.optimize(semanticsResult));
+    }
+
     static JasminResult getJasminResult(String filename) {
         String resource = SpecsIo.getResource("pt/up/fe/comp/cp3/optimizations/" + filename);
         return TestUtils.backend(resource);
@@ -40,12 +69,28 @@ public class JasminOptimizationsTest {
         return TestUtils.backend(SpecsIo.getResource("pt/up/fe/comp/cp3/optimizations/" + filename), config);
     }
 
+    static JasminResult getJasminResultOptReg(String filename, int numReg) {
+        Map<String, String> config = new HashMap<>();
+        config.put("optimize", "true");
+        config.put("registerAllocation", String.valueOf(numReg));
+        return TestUtils.backend(SpecsIo.getResource("pt/up/fe/comp/cp3/optimizations/" + filename), config);
+    }
+
     static JasminResult getJasminResultReg(String filename, int numReg) {
         Map<String, String> config = new HashMap<>();
         config.put("registerAllocation", String.valueOf(numReg));
         return TestUtils.backend(SpecsIo.getResource("pt/up/fe/comp/cp3/optimizations/" + filename), config);
     }
 
+    static String getDestName(AssignInstruction assign) {
+        return ((Operand) assign.getDest()).getName();
+    }
+
+    static boolean isTempCopy(AssignInstruction assign) {
+        return assign.getRhs() instanceof SingleOpInstruction single
+                && single.getSingleOperand() instanceof Operand operand && operand.getName().startsWith("tmp");
+    }
+
     /**
      * Test if small integers are loaded with iconst
      */
@@ -121,5 +166,348 @@ public class JasminOptimizationsTest {
 
     }
 
+    /**
+     * Test if a tail-recursive method too large to be inlined becomes a loop that still reads the new arguments
+     */
+    @Test(timeout = 60000)
+    public void section2_TailRec_notInlined() {
+        var jasminResult = getJasminResultOptReg("TailRec_not_inlined.jmm", 0);
+        var method = CpUtils.getJasminMethod(jasminResult, "g");
+        CpUtils.matches(method, "tailrec:");
+        CpUtils.matches(method, "goto\\s+tailrec");
+        CpUtils.assertEquals("Expected no recursive call in 'g'", false, method.contains("invokevirtual"),
+                jasminResult);
+        CpUtils.runJasmin(jasminResult, """
+                2
+                3
+                4
+                6
+                8
+                -3
+                -4
+                14
+                16
+                1
+                2
+                3
+                3
+                4
+                -4
+                -5
+                7
+                8
+                0
+                1
+                2
+                0
+                0
+                -5
+                -6
+                0
+                0
+                0""");
+    }
+
+    /**
+     * Test if a constant that only flows around a loop through a branch that is never taken is propagated
+     */
+    @Test(timeout = 60000)
+    public void section2_ConstProp_loopBranch() {
+        var ollirResult = getOllirResultOpt("Sccp_loop_branch.jmm");
+        var method = CpUtils.getMethod(ollirResult, "foo");
+        CpUtils.assertLiteralReturn("4", method, ollirResult);
+
+        var jasminResult = getJasminResultOptReg("Sccp_loop_branch.jmm", 0);
+        CpUtils.assertEquals("Expected the branch on 'x < 10' to be removed from 'foo'", false,
+                CpUtils.getJasminMethod(jasminResult, "foo").contains("bipush 10"), jasminResult);
+        CpUtils.runJasmin(jasminResult, "4");
+    }
+
+    /**
+     * Test if a division by a constant zero is kept for the runtime instead of stopping the compilation
+     */
+    @Test(timeout = 60000)
+    public void section2_ConstProp_divByZero() {
+        var jasminResult = getJasminResultOptReg("ConstProp_div_zero.jmm", 0);
+        CpUtils.matches(CpUtils.getJasminMethod(jasminResult, "foo"), "idiv");
+        CpUtils.runJasmin(jasminResult, "2");
+    }
+
+    /**
+     * Test if SSA form assigns each version once, places phi functions at the loop header and gives back working code
+     */
+    @Test(timeout = 60000)
+    public void section2_Ssa_loop() {
+        var ollirResult = getOllirResult("Ssa_loop.jmm");
+        var method = CpUtils.getMethod(ollirResult, "sum");
+        var ssa = new SsaForm(method);
+
+        CpUtils.assertEquals("Expected phi functions for 's' and 'i'", 2, ssa.getNumPhis(), ollirResult);
+        var defs = new HashSet<String>();
+        for (var block : ssa.getCfg().getBlocks()) {
+            for (var phi : ssa.getPhis(block)) {
+                CpUtils.assertEquals("Expected a source for each predecessor of the phi of " + phi.getVariable(),
+                        block.getPredecessors().size(), phi.getSources().size(), ollirResult);
+                CpUtils.assertTrue("Expected a single assignment to " + phi.getTarget(), defs.add(phi.getTarget()),
+                        ollirResult);
+            }
+            for (var inst : block.getInstructions()) {
+                var def = InstructionUtils.getDef(inst);
+                if (def != null)
+                    CpUtils.assertTrue("Expected a single assignment to " + def.getName(), defs.add(def.getName()),
+                            ollirResult);
+            }
+        }
+
+        ssa.destruct();
+        CpUtils.runJasmin(TestUtils.backend(ollirResult), "45");
+    }
+
+    /**
+     * Test if calls whose results are not used are removed when they change nothing, along with the code of inlined
+     * calls that only computed the result
+     */
+    @Test(timeout = 60000)
+    public void section2_Dce_unusedCall() {
+        var jasminResult = getJasminResultOptReg("Dce_unused_call.jmm", 0);
+        var method = CpUtils.getJasminMethod(jasminResult, "static main");
+        CpUtils.assertEquals("Expected only the call to 'big' whose result is printed", 1,
+                method.split("invokevirtual Dce_unused_call/big").length - 1, jasminResult);
+        CpUtils.assertEquals("Expected no multiplication left from the inlined 'square'", false,
+                method.contains("imul"), jasminResult);
+        CpUtils.runJasmin(jasminResult, "-1804");
+    }
+
+    /**
+     * Test if conditions with boolean literals are folded, keeping the side effects of the operands that still run and
+     * dropping the ones that do not
+     */
+    @Test(timeout = 60000)
+    public void section2_BranchFolding_literals() {
+        var ollirResult = getOllirResultAstOpt("BranchFolding_literals.jmm");
+        var method = CpUtils.getMethod(ollirResult, "run");
+        var branches = CpUtils.getInstructions(CondBranchInstruction.class, method);
+        CpUtils.assertTrue("Expected at most the branch on 'this.side()' in 'run'", branches.size() <= 1, ollirResult);
+        for (var branch : branches)
+            CpUtils.assertTrue("Expected no branch on a literal in 'run', found " + branch.toInstruction(),
+                    branch.getOperands().stream().noneMatch(LiteralElement.class::isInstance), ollirResult);
+
+        CpUtils.runJasmin(getJasminResultOptReg("BranchFolding_literals.jmm", 0), """
+                1
+                3""");
+    }
+
+    /**
+     * Test if a subexpression computed twice in a block is computed once
+     */
+    @Test(timeout = 60000)
+    public void section2_Cse_block() {
+        var jasminResult = getJasminResultOptReg("Cse_block.jmm", 0);
+        var method = CpUtils.getJasminMethod(jasminResult, "foo");
+        CpUtils.assertEquals("Expected 'x * y' to be computed once", 1, method.split("imul").length - 1,
+                jasminResult);
+        CpUtils.runJasmin(jasminResult, "87");
+    }
+
+    /**
+     * Test if a loop-invariant multiplication is moved before the loop
+     */
+    @Test(timeout = 60000)
+    public void section2_Licm_invariant() {
+        var jasminResult = getJasminResultOptReg("Licm_invariant.jmm", 0);
+        var method = CpUtils.getJasminMethod(jasminResult, "foo");
+        int loop = method.indexOf("while");
+        CpUtils.assertTrue("Expected a loop in 'foo'", loop >= 0, jasminResult);
+        CpUtils.assertTrue("Expected 'a * b' before the loop", method.substring(0, loop).contains("imul"),
+                jasminResult);
+        CpUtils.assertEquals("Expected no multiplication in the loop", false,
+                method.substring(loop).contains("imul"), jasminResult);
+        CpUtils.runJasmin(jasminResult, "210");
+    }
+
+    /**
+     * Test if a multiplication by the induction variable becomes an increment and a multiplication by a power of two a
+     * shift
+     */
+    @Test(timeout = 60000)
+    public void section2_StrengthReduction_loop() {
+        var jasminResult = getJasminResultOptReg("StrengthReduction_loop.jmm", 0);
+        var method = CpUtils.getJasminMethod(jasminResult, "foo");
+        CpUtils.matches(method, "iinc\\s+\\w+\\s+12");
+        CpUtils.matches(method, "ishl");
+        CpUtils.assertEquals("Expected no multiplication in the loop", false,
+                method.substring(method.indexOf("while")).contains("imul"), jasminResult);
+        CpUtils.runJasmin(jasminResult, "4320");
+    }
+
+    /**
+     * Test if calls to a small method of the class are inlined
+     */
+    @Test(timeout = 60000)
+    public void section2_Inlining_small() {
+        var jasminResult = getJasminResultOptReg("Inlining_small.jmm", 0);
+        var method = CpUtils.getJasminMethod(jasminResult, "static main");
+        CpUtils.assertEquals("Expected the calls to 'square' to be inlined", false,
+                method.contains("invokevirtual"), jasminResult);
+        CpUtils.runJasmin(jasminResult, "97");
+    }
+
+    /**
+     * Test if the copy left by reusing a subexpression is propagated and removed
+     */
+    @Test(timeout = 60000)
+    public void section2_CopyProp_cse() {
+        var ollirResult = getOllirResultOpt("CopyProp_cse.jmm");
+        var method = CpUtils.getMethod(ollirResult, "foo");
+        for (var assign : CpUtils.getInstructions(AssignInstruction.class, method))
+            CpUtils.assertTrue("Expected no copy of a variable in 'foo', found " + assign.toInstruction(),
+                    !(assign.getRhs() instanceof SingleOpInstruction single
+                            && single.getSingleOperand() instanceof Operand), ollirResult);
+        CpUtils.assertEquals("Expected 'x + y' to be computed once", 2,
+                CpUtils.getInstructions(OpInstruction.class, method).stream()
+                        .filter(op -> op.getOperation().getOpType().name().equals("ADD")).count(), ollirResult);
+
+        CpUtils.runJasmin(getJasminResultOptReg("CopyProp_cse.jmm", 0), "80");
+    }
+
+    /**
+     * Test if the value assigned to a local variable is computed directly in it, except where a temporary is needed
+     */
+    @Test(timeout = 60000)
+    public void section2_DestReuse_assign() {
+        var ollirResult = getOllirResultAstOpt("DestReuse_assign.jmm");
+        var method = CpUtils.getMethod(ollirResult, "run");
+        var assigns = CpUtils.getInstructions(AssignInstruction.class, method);
+
+        // x = a.foo(3) + b
+        CpUtils.assertTrue("Expected 'x' to be assigned the sum directly", assigns.stream()
+                .anyMatch(assign -> getDestName(assign).equals("x") && assign.getRhs() instanceof OpInstruction),
+                ollirResult);
+        CpUtils.assertTrue("Expected no copy of a temporary to 'x'", assigns.stream()
+                .noneMatch(assign -> getDestName(assign).equals("x") && isTempCopy(assign)), ollirResult);
+
+        // total = x + b: putfield needs an operand
+        var putField = CpUtils.getInstructions(PutFieldInstruction.class, method).getFirst();
+        CpUtils.assertTrue("Expected the field to be stored from a temporary",
+                putField.getValue() instanceof Operand value && value.getName().startsWith("tmp"), ollirResult);
+
+        // arr = [arr[1], arr[0]] and d = c && d read the destination
+        CpUtils.assertEquals("Expected both array literals to be built in temporaries", 2, assigns.stream()
+                .filter(assign -> getDestName(assign).equals("arr") && isTempCopy(assign)).count(), ollirResult);
+        CpUtils.assertTrue("Expected 'c && d' to be computed in a temporary", assigns.stream()
+                .anyMatch(assign -> getDestName(assign).equals("d") && isTempCopy(assign)), ollirResult);
+
+        CpUtils.runJasmin(getJasminResultOptReg("DestReuse_assign.jmm", 0), """
+                10
+                14
+                4
+                10
+                1
+                26
+                46
+                20
+                26
+                0""");
+    }
+
+    /**
+     * Test if a condition with && and ! jumps directly to the branches instead of computing a boolean
+     */
+    @Test(timeout = 60000)
+    public void section2_Branch_conditions() {
+        var jasminResult = getJasminResultOptReg("Branch_conditions.jmm", 0);
+        var method = CpUtils.getJasminMethod(jasminResult, "foo");
+        CpUtils.assertEquals("Expected a conditional jump for each comparison", 2,
+                method.split(CpUtils.IF_REGEX).length - 1, jasminResult);
+        CpUtils.assertEquals("Expected no boolean operations in 'foo'", false,
+                method.contains("iand") || method.contains("ixor"), jasminResult);
+        CpUtils.runJasmin(jasminResult, """
+                1
+                2
+                2""");
+    }
+
+    /**
+     * Test if a while loop tests its condition at the bottom and jumps back with a single conditional branch
+     */
+    @Test(timeout = 60000)
+    public void section2_LoopRotation_while() {
+        var jasminResult = getJasminResultOptReg("LoopRotation_while.jmm", 0);
+        var method = CpUtils.getJasminMethod(jasminResult, "foo");
+        CpUtils.matches(method, "if_icmp\\w+\\s+while\\w*");
+        CpUtils.assertEquals("Expected no goto back to the loop", false, method.matches("(?s).*goto\\s+while.*"),
+                jasminResult);
+        CpUtils.runJasmin(jasminResult, """
+                16
+                0""");
+    }
+
+    /**
+     * Test if a varargs call with constant arguments reads its array from a static field filled once by the class
+     * initializer, while calls to a method that changes its array keep creating one per call
+     */
+    @Test(timeout = 60000)
+    public void section2_Varargs_constant() {
+        var jasminResult = getJasminResultOptReg("Varargs_constant.jmm", 0);
+        CpUtils.matches(jasminResult, "\\.field\\s+private\\s+static\\s+'?constArray\\d+'?\\s+\\[I");
+        var method = CpUtils.getJasminMethod(jasminResult, "run");
+        CpUtils.matches(method, "getstatic\\s+Varargs_constant/constArray\\d+\\s+\\[I");
+        CpUtils.assertEquals("Expected the shared array not to be cloned", false, method.contains("clone"),
+                jasminResult);
+        CpUtils.assertEquals("Expected an array created for each call to 'bump'", 2,
+                method.split("newarray").length - 1, jasminResult);
+        var constructor = CpUtils.getJasminMethod(jasminResult, "<init>");
+        CpUtils.assertEquals("Expected the default constructor", false, constructor.contains("newarray"),
+                jasminResult);
+        CpUtils.runJasmin(jasminResult, "64");
+    }
+
+    /**
+     * Test if large constant array literals are copied from a static template instead of stored element by element
+     */
+    @Test(timeout = 60000)
+    public void section2_ArrayLiteral_template() {
+        var jasminResult = getJasminResultOptReg("ArrayLiteral_template.jmm", 0);
+        var method = CpUtils.getJasminMethod(jasminResult, "static main");
+        CpUtils.matches(method, "getstatic\\s+ArrayLiteral_template/constArray\\d+\\s+\\[I");
+        CpUtils.assertEquals("Expected each literal to clone the template", 2, method.split("clone").length - 1,
+                jasminResult);
+        CpUtils.assertEquals("Expected only the store of 'a[0] = 1' in 'main'", 1,
+                method.split("iastore").length - 1, jasminResult);
+        CpUtils.runJasmin(jasminResult, """
+                1
+                10
+                100000
+                65536""");
+    }
+
+    /**
+     * Test if calls to a method without side effects are reused and moved out of loops
+     */
+    @Test(timeout = 60000)
+    public void section2_SideEffects_pure() {
+        var jasminResult = getJasminResultOptReg("SideEffects_pure.jmm", 0);
+        var method = CpUtils.getJasminMethod(jasminResult, "static main");
+        CpUtils.assertEquals("Expected 'big(4)' to be called once and 'big(6)' once before the loop", 2,
+                method.split("invokevirtual SideEffects_pure/big").length - 1, jasminResult);
+        CpUtils.assertEquals("Expected no call in the loop", false,
+                method.substring(method.indexOf("while")).contains("invokevirtual"), jasminResult);
+        CpUtils.runJasmin(jasminResult, "-91104");
+    }
+
+    /**
+     * Test if a field read and written in a loop is kept in a local variable while the loop runs
+     */
+    @Test(timeout = 60000)
+    public void section2_FieldScalar_loop() {
+        var jasminResult = getJasminResultOptReg("FieldScalar_loop.jmm", 0);
+        var method = CpUtils.getJasminMethod(jasminResult, "run");
+        var loop = method.substring(method.indexOf("while"), method.lastIndexOf("while"));
+        CpUtils.assertEquals("Expected no field access in the loop", false,
+                loop.contains("getfield") || loop.contains("putfield"), jasminResult);
+        CpUtils.runJasmin(jasminResult, """
+                10
+                13""");
+    }
 
 }